@@ -0,0 +1,233 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Encodes binary data as Base64 or hexadecimal text in chunks of fixed size.
+ *
+ * <p>The characters are encoded into a buffer supplied by the caller and handed to the sink
+ * whenever the buffer is full, so that the encoded text is never held in memory as a whole.
+ *
+ * <p>The Base64 alphabet is the one defined by RFC 4648 and hexadecimal digits are upper case
+ * as in the canonical representation of <code>xs:hexBinary</code>; neither needs escaping.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class BinaryEncoder {
+
+  /**
+   * Where the encoded characters go.
+   */
+  @FunctionalInterface
+  interface Sink {
+
+    /**
+     * Writes encoded characters.
+     *
+     * @param chars The buffer of characters.
+     * @param off   The offset of the first character.
+     * @param len   The number of characters.
+     *
+     * @throws IOException If thrown by the underlying writer.
+     */
+    void write(char[] chars, int off, int len) throws IOException;
+  }
+
+  /**
+   * The number of bytes read from a stream at a time, a multiple of 3 so that only the last
+   * chunk may need Base64 padding.
+   */
+  private static final int CHUNK_SIZE = 3 * 1024;
+
+  /**
+   * The Base64 alphabet.
+   */
+  private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  /**
+   * The hexadecimal digits.
+   */
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  /**
+   * Where the encoded characters go.
+   */
+  private final Sink out;
+
+  /**
+   * The buffer of encoded characters.
+   */
+  private final char[] buf;
+
+  /**
+   * The maximum number of characters per line (<code>Integer.MAX_VALUE</code> for no wrapping).
+   */
+  private final int lineLength;
+
+  /**
+   * The position of the next character to write in the buffer.
+   */
+  private int pos = 0;
+
+  /**
+   * The number of characters on the current line.
+   */
+  private int column = 0;
+
+  /**
+   * Creates a new encoder.
+   *
+   * @param out        Where the encoded characters go.
+   * @param buf        The buffer to encode the characters into.
+   * @param lineLength The maximum number of characters per line, 0 for no wrapping.
+   *
+   * @throws IllegalArgumentException If the line length is negative.
+   */
+  BinaryEncoder(Sink out, char[] buf, int lineLength) {
+    if (lineLength < 0)
+      throw new IllegalArgumentException("The line length must not be negative");
+    this.out = out;
+    this.buf = buf;
+    this.lineLength = lineLength == 0 ? Integer.MAX_VALUE : lineLength;
+  }
+
+  /**
+   * Encodes the specified bytes as Base64.
+   *
+   * <p>Unless it is the last one, the number of bytes must be a multiple of 3.
+   *
+   * @param data The bytes to encode.
+   * @param off  The offset of the first byte.
+   * @param len  The number of bytes.
+   *
+   * @throws IOException If thrown by the sink.
+   */
+  void base64(byte[] data, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, data.length);
+    final int end = off + len;
+    int i = off;
+    for (; i + 2 < end; i += 3) {
+      int b = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+      put(BASE64[b >>> 18]);
+      put(BASE64[(b >>> 12) & 0x3F]);
+      put(BASE64[(b >>> 6) & 0x3F]);
+      put(BASE64[b & 0x3F]);
+    }
+    // One or two bytes left: pad
+    if (i < end) {
+      boolean two = i + 1 < end;
+      int b = (data[i] & 0xFF) << 16 | (two ? (data[i + 1] & 0xFF) << 8 : 0);
+      put(BASE64[b >>> 18]);
+      put(BASE64[(b >>> 12) & 0x3F]);
+      put(two ? BASE64[(b >>> 6) & 0x3F] : '=');
+      put('=');
+    }
+  }
+
+  /**
+   * Encodes all the bytes read from the specified input stream as Base64.
+   *
+   * @param in The input stream to read the bytes from, it is not closed.
+   *
+   * @throws IOException If thrown by the input stream or the sink.
+   */
+  void base64(InputStream in) throws IOException {
+    byte[] bytes = new byte[CHUNK_SIZE];
+    int n;
+    // Chunks are read in full so that only the last one is padded
+    while ((n = in.readNBytes(bytes, 0, bytes.length)) > 0) {
+      base64(bytes, 0, n);
+    }
+  }
+
+  /**
+   * Encodes the specified bytes as hexadecimal digits.
+   *
+   * @param data The bytes to encode.
+   * @param off  The offset of the first byte.
+   * @param len  The number of bytes.
+   *
+   * @throws IOException If thrown by the sink.
+   */
+  void hex(byte[] data, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, data.length);
+    final int end = off + len;
+    for (int i = off; i < end; i++) {
+      put(HEX[(data[i] >> 4) & 0xF]);
+      put(HEX[data[i] & 0xF]);
+    }
+  }
+
+  /**
+   * Encodes all the bytes read from the specified input stream as hexadecimal digits.
+   *
+   * @param in The input stream to read the bytes from, it is not closed.
+   *
+   * @throws IOException If thrown by the input stream or the sink.
+   */
+  void hex(InputStream in) throws IOException {
+    byte[] bytes = new byte[CHUNK_SIZE];
+    int n;
+    while ((n = in.read(bytes)) != -1) {
+      hex(bytes, 0, n);
+    }
+  }
+
+  /**
+   * Hands the remaining encoded characters to the sink.
+   *
+   * @throws IOException If thrown by the sink.
+   */
+  void finish() throws IOException {
+    if (this.pos > 0) {
+      this.out.write(this.buf, 0, this.pos);
+      this.pos = 0;
+    }
+  }
+
+  /**
+   * Adds an encoded character, starting a new line first if the current line is full.
+   */
+  private void put(char c) throws IOException {
+    if (this.column == this.lineLength) {
+      append('\n');
+      this.column = 0;
+    }
+    append(c);
+    this.column++;
+  }
+
+  /**
+   * Adds a character to the buffer.
+   */
+  private void append(char c) throws IOException {
+    if (this.pos == this.buf.length) {
+      this.out.write(this.buf, 0, this.pos);
+      this.pos = 0;
+    }
+    this.buf[this.pos++] = c;
+  }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * An unsynchronised character buffer in front of the writer supplied to an XML writer.
+ *
+ * <p>The markup and escaped text are accumulated in a <code>char</code> array and written
+ * to the wrapped writer in bulk, so that the wrapped writer is not invoked (and locked) for
+ * every bracket, quote or escaped character.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class CharOutput extends XMLOutput {
+
+  /**
+   * The default size of the character buffer.
+   */
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /**
+   * Where the characters go.
+   */
+  private Writer sink;
+
+  /**
+   * The buffer of characters.
+   */
+  private final char[] buf;
+
+  /**
+   * The position of the next character to write in the buffer.
+   */
+  private int pos = 0;
+
+  /**
+   * Creates a new character output.
+   *
+   * @param sink The writer to write the characters to.
+   *
+   * @throws NullPointerException If the writer is <code>null</code>.
+   */
+  CharOutput(Writer sink) {
+    this.sink = Objects.requireNonNull(sink, "XMLWriter cannot use a null writer.");
+    this.buf = new char[DEFAULT_BUFFER_SIZE];
+  }
+
+  /**
+   * Makes this output write to another writer, discarding any buffered characters.
+   *
+   * <p>The buffer is kept.
+   *
+   * @param sink The writer to write the characters to.
+   *
+   * @throws NullPointerException If the writer is <code>null</code>.
+   */
+  void reset(Writer sink) {
+    this.sink = Objects.requireNonNull(sink, "XMLWriter cannot use a null writer.");
+    this.pos = 0;
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    if (this.pos == this.buf.length) {
+      drain();
+    }
+    this.buf[this.pos++] = (char) c;
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    if (len > this.buf.length - this.pos) {
+      drain();
+      // Larger than the buffer: no point copying
+      if (len >= this.buf.length) {
+        this.sink.write(cbuf, off, len);
+        return;
+      }
+    }
+    System.arraycopy(cbuf, off, this.buf, this.pos, len);
+    this.pos += len;
+  }
+
+  @Override
+  public void write(String s, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      if (this.pos == this.buf.length) {
+        drain();
+      }
+      int n = Math.min(end - i, this.buf.length - this.pos);
+      s.getChars(i, i + n, this.buf, this.pos);
+      this.pos += n;
+      i += n;
+    }
+  }
+
+  @Override
+  public CharOutput append(@Nullable CharSequence csq) throws IOException {
+    CharSequence s = csq != null ? csq : "null";
+    final int end = s.length();
+    int i = 0;
+    while (i < end) {
+      if (this.pos == this.buf.length) {
+        drain();
+      }
+      int n = Math.min(end - i, this.buf.length - this.pos);
+      getChars(s, i, i + n, this.buf, this.pos);
+      this.pos += n;
+      i += n;
+    }
+    return this;
+  }
+
+  @Override
+  void writeLong(long value) throws IOException {
+    if (this.pos > this.buf.length - MAX_LONG_LENGTH) {
+      drain();
+    }
+    final char[] b = this.buf;
+    final int end = this.pos + decimalLength(value);
+    int p = end;
+    long q = value < 0 ? value : -value;
+    do {
+      b[--p] = (char) digit(q);
+      q /= 10;
+    } while (q != 0);
+    if (value < 0) {
+      b[--p] = '-';
+    }
+    this.pos = end;
+  }
+
+  @Override
+  void writeMarkup(char[] chars, byte[] utf8) throws IOException {
+    write(chars, 0, chars.length);
+  }
+
+  /**
+   * Writes the buffered characters and flushes the wrapped writer.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  @Override
+  public void flush() throws IOException {
+    drain();
+    this.sink.flush();
+  }
+
+  /**
+   * Writes the buffered characters and closes the wrapped writer.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  @Override
+  public void close() throws IOException {
+    drain();
+    this.sink.close();
+  }
+
+  @Override
+  void drain() throws IOException {
+    if (this.pos > 0) {
+      this.sink.write(this.buf, 0, this.pos);
+      this.pos = 0;
+    }
+  }
+
+}
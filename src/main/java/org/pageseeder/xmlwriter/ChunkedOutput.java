@@ -0,0 +1,322 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * An unsynchronised in-memory output keeping the XML data in chunks of characters.
+ *
+ * <p>Unlike a <code>StringWriter</code>, the data is never copied as it grows: when a chunk
+ * is full, a new chunk is added. All chunks have the same size, a power of two chosen from
+ * the expected capacity, so that any character can be accessed directly and chunks are
+ * small enough not to be treated as huge objects by the garbage collector.
+ *
+ * <p>As there is no sink, draining, flushing and closing this output has no effect.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class ChunkedOutput extends XMLOutput {
+
+  /**
+   * The default expected capacity.
+   */
+  static final int DEFAULT_CAPACITY = 1 << 13;
+
+  /**
+   * The smallest chunk size.
+   */
+  private static final int MIN_CHUNK_SIZE = 1 << 6;
+
+  /**
+   * The largest chunk size (64KB).
+   */
+  private static final int MAX_CHUNK_SIZE = 1 << 15;
+
+  /**
+   * The number of bits to shift an index by to get the chunk it is in.
+   */
+  private final int shift;
+
+  /**
+   * The mask to apply to an index to get its position in its chunk.
+   */
+  private final int mask;
+
+  /**
+   * The chunks of characters, only the first <code>count</code> are used.
+   */
+  private char[][] chunks;
+
+  /**
+   * The number of chunks in use.
+   */
+  private int count;
+
+  /**
+   * The chunk being written to (the last chunk in use).
+   */
+  private char[] current;
+
+  /**
+   * The position of the next character to write in the current chunk.
+   */
+  private int pos = 0;
+
+  /**
+   * A buffer for the digits of numbers.
+   */
+  private final char[] digits = new char[MAX_LONG_LENGTH];
+
+  /**
+   * Creates a new chunked output.
+   *
+   * @param capacity The expected number of characters.
+   */
+  ChunkedOutput(int capacity) {
+    // Clamp before rounding up to a power of two, which would overflow for large capacities
+    int size = capacity <= MIN_CHUNK_SIZE ? MIN_CHUNK_SIZE
+        : capacity >= MAX_CHUNK_SIZE ? MAX_CHUNK_SIZE
+        : Integer.highestOneBit(capacity - 1) << 1;
+    this.shift = Integer.numberOfTrailingZeros(size);
+    this.mask = size - 1;
+    this.chunks = new char[Math.max(4, (capacity >> this.shift) + 1)][];
+    this.current = new char[size];
+    this.chunks[0] = this.current;
+    this.count = 1;
+  }
+
+  @Override
+  public void write(int c) {
+    if (this.pos == this.current.length) {
+      nextChunk();
+    }
+    this.current[this.pos++] = (char) c;
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) {
+    int o = off;
+    int remaining = len;
+    while (remaining > 0) {
+      if (this.pos == this.current.length) {
+        nextChunk();
+      }
+      int n = Math.min(remaining, this.current.length - this.pos);
+      System.arraycopy(cbuf, o, this.current, this.pos, n);
+      this.pos += n;
+      o += n;
+      remaining -= n;
+    }
+  }
+
+  @Override
+  public void write(String s, int off, int len) {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      if (this.pos == this.current.length) {
+        nextChunk();
+      }
+      int n = Math.min(end - i, this.current.length - this.pos);
+      s.getChars(i, i + n, this.current, this.pos);
+      this.pos += n;
+      i += n;
+    }
+  }
+
+  @Override
+  public ChunkedOutput append(@Nullable CharSequence csq) {
+    CharSequence s = csq != null ? csq : "null";
+    final int end = s.length();
+    int i = 0;
+    while (i < end) {
+      if (this.pos == this.current.length) {
+        nextChunk();
+      }
+      int n = Math.min(end - i, this.current.length - this.pos);
+      getChars(s, i, i + n, this.current, this.pos);
+      this.pos += n;
+      i += n;
+    }
+    return this;
+  }
+
+  @Override
+  void writeLong(long value) {
+    // Digits are formatted separately as they may straddle two chunks
+    final char[] b = this.digits;
+    final int length = decimalLength(value);
+    int p = length;
+    long q = value < 0 ? value : -value;
+    do {
+      b[--p] = (char) digit(q);
+      q /= 10;
+    } while (q != 0);
+    if (value < 0) {
+      b[--p] = '-';
+    }
+    write(b, 0, length);
+  }
+
+  @Override
+  void writeMarkup(char[] chars, byte[] utf8) {
+    write(chars, 0, chars.length);
+  }
+
+  @Override
+  public void flush() {
+    // Nothing to flush
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close
+  }
+
+  @Override
+  void drain() {
+    // Nothing to drain
+  }
+
+  /**
+   * @return The number of characters written.
+   */
+  int length() {
+    return ((this.count - 1) << this.shift) + this.pos;
+  }
+
+  /**
+   * Returns the character at the specified index.
+   *
+   * @param index The index of the character.
+   *
+   * @return The character at that index.
+   *
+   * @throws IndexOutOfBoundsException If the index is negative or not less than the length.
+   */
+  char charAt(int index) {
+    if (index < 0 || index >= length())
+      throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+    return this.chunks[index >>> this.shift][index & this.mask];
+  }
+
+  /**
+   * Copies the specified range of characters into the destination array.
+   *
+   * @param start    The index of the first character.
+   * @param end      The index after the last character.
+   * @param dst      The destination array.
+   * @param dstBegin The offset in the destination array.
+   */
+  void getChars(int start, int end, char[] dst, int dstBegin) {
+    int i = start;
+    int d = dstBegin;
+    while (i < end) {
+      char[] chunk = this.chunks[i >>> this.shift];
+      int p = i & this.mask;
+      int n = Math.min(end - i, chunk.length - p);
+      System.arraycopy(chunk, p, dst, d, n);
+      i += n;
+      d += n;
+    }
+  }
+
+  /**
+   * Writes all the characters to the specified writer, chunk by chunk.
+   *
+   * @param out The writer to write to.
+   *
+   * @throws IOException If thrown by the writer.
+   */
+  void writeTo(Writer out) throws IOException {
+    for (int i = 0; i < this.count - 1; i++) {
+      out.write(this.chunks[i], 0, this.chunks[i].length);
+    }
+    out.write(this.current, 0, this.pos);
+  }
+
+  /**
+   * Returns the number of bytes needed to encode all the characters as UTF-8.
+   *
+   * <p>Unpaired surrogates count for one byte as they are replaced by '?'.
+   *
+   * @return the length of the UTF-8 representation.
+   */
+  int utf8Length() {
+    int length = 0;
+    char high = 0;
+    for (int k = 0; k < this.count; k++) {
+      char[] chunk = this.chunks[k];
+      int n = k < this.count - 1 ? chunk.length : this.pos;
+      for (int i = 0; i < n; i++) {
+        char c = chunk[i];
+        length += UTF8Output.encodedLength(high, c);
+        high = Character.isHighSurrogate(c) ? c : 0;
+      }
+    }
+    return high != 0 ? length + 1 : length;
+  }
+
+  /**
+   * Returns all the characters encoded as UTF-8.
+   *
+   * <p>The characters are encoded directly into an array of the exact length.
+   * Unpaired surrogates are replaced by '?'.
+   *
+   * @return the UTF-8 representation.
+   */
+  byte[] toUTF8Bytes() {
+    final byte[] b = new byte[utf8Length()];
+    int p = 0;
+    char high = 0;
+    for (int k = 0; k < this.count; k++) {
+      char[] chunk = this.chunks[k];
+      int n = k < this.count - 1 ? chunk.length : this.pos;
+      for (int i = 0; i < n; i++) {
+        char c = chunk[i];
+        p = UTF8Output.encode(high, c, b, p);
+        high = Character.isHighSurrogate(c) ? c : 0;
+      }
+    }
+    if (high != 0) {
+      b[p] = '?';
+    }
+    return b;
+  }
+
+  /**
+   * Adds a new chunk.
+   */
+  private void nextChunk() {
+    if (this.count == this.chunks.length) {
+      this.chunks = Arrays.copyOf(this.chunks, this.count * 2);
+    }
+    this.current = new char[this.mask + 1];
+    this.chunks[this.count++] = this.current;
+    this.pos = 0;
+  }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The stack of open elements used by the XML writers to close elements automatically.
+ *
+ * <p>The state of each element is kept in parallel arrays indexed by depth rather than in
+ * an object per element, so that opening and closing elements does not allocate once the
+ * arrays have grown to the depth of the document.
+ *
+ * <p>The end tag of each element is prepared when the element is pushed, in a buffer
+ * reused at the same depth, so that it can be written in a single bulk write.
+ *
+ * <p>The bottom of the stack is the root of the document: it has children and no name.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class ElementStack {
+
+  /**
+   * The initial capacity of the arrays.
+   */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * The end tag buffer of depths which have not been reached yet.
+   */
+  private static final char[] NO_CHARS = new char[0];
+
+  /**
+   * The names of the elements as specified when they were opened.
+   */
+  private @Nullable String[] names = new String[INITIAL_CAPACITY];
+
+  /**
+   * The name handles of the elements opened with one.
+   */
+  private @Nullable XMLName[] handles = new XMLName[INITIAL_CAPACITY];
+
+  /**
+   * The buffers holding the end tag of each element opened with a name.
+   */
+  private char[][] closeTags = newCloseTags(INITIAL_CAPACITY);
+
+  /**
+   * The length of the end tag of each element.
+   */
+  private int[] closeTagLengths = new int[INITIAL_CAPACITY];
+
+  /**
+   * Indicates whether each element has children.
+   */
+  private boolean[] hasChildren = new boolean[INITIAL_CAPACITY];
+
+  /**
+   * The index of the namespace frame declared by each element (-1 if none).
+   */
+  private int[] frames = new int[INITIAL_CAPACITY];
+
+  /**
+   * The index of the current element.
+   */
+  private int top = 0;
+
+  /**
+   * Creates a new stack containing only the root.
+   */
+  ElementStack() {
+    this.names[0] = "";
+    this.hasChildren[0] = true;
+    this.frames[0] = -1;
+  }
+
+  /**
+   * Pushes an element opened with a name.
+   *
+   * @param name        The name of the element, possibly including inline attributes.
+   * @param hasChildren Whether the element has children.
+   * @param frame       The index of the namespace frame declared by the element (-1 if none).
+   */
+  void push(String name, boolean hasChildren, int frame) {
+    int i = next();
+    this.names[i] = name;
+    this.handles[i] = null;
+    int length = tagNameLength(name) + 3;
+    char[] tag = this.closeTags[i];
+    if (tag.length < length) {
+      tag = new char[Math.max(length, 16)];
+      tag[0] = '<';
+      tag[1] = '/';
+      this.closeTags[i] = tag;
+    }
+    name.getChars(0, length - 3, tag, 2);
+    tag[length - 1] = '>';
+    this.closeTagLengths[i] = length;
+    this.hasChildren[i] = hasChildren;
+    this.frames[i] = frame;
+  }
+
+  /**
+   * Pushes an element opened with a name handle.
+   *
+   * @param name        The name handle of the element.
+   * @param hasChildren Whether the element has children.
+   * @param frame       The index of the namespace frame declared by the element (-1 if none).
+   */
+  void push(XMLName name, boolean hasChildren, int frame) {
+    int i = next();
+    String n = name.toString();
+    this.names[i] = n;
+    this.handles[i] = name;
+    this.closeTagLengths[i] = name.closeTag.length;
+    this.hasChildren[i] = hasChildren;
+    this.frames[i] = frame;
+  }
+
+  /**
+   * Removes the current element.
+   *
+   * @throws IllegalCloseElementException If the current element is the root.
+   */
+  void pop() {
+    if (this.top == 0)
+      throw new IllegalCloseElementException();
+    // Do not retain the names
+    this.names[this.top] = null;
+    this.handles[this.top] = null;
+    this.top--;
+  }
+
+  /**
+   * Removes all the elements except the root, keeping the arrays.
+   */
+  void clear() {
+    for (int i = 1; i <= this.top; i++) {
+      this.names[i] = null;
+      this.handles[i] = null;
+    }
+    this.top = 0;
+  }
+
+  /**
+   * @return <code>true</code> if there is no open element.
+   */
+  boolean isRoot() {
+    return this.top == 0;
+  }
+
+  /**
+   * @return The name of the current element.
+   */
+  String name() {
+    // Only the slots above the current element are cleared
+    return Objects.requireNonNull(this.names[this.top]);
+  }
+
+  /**
+   * @return The name handle of the current element if it was opened with one.
+   */
+  @Nullable XMLName handle() {
+    return this.handles[this.top];
+  }
+
+  /**
+   * Returns the end tag of the current element.
+   *
+   * <p>Only the first {@link #closeTagLength()} characters are part of the end tag. The array
+   * is reused for the next element at the same depth.
+   *
+   * @return The characters of the end tag of the current element.
+   */
+  char[] closeTag() {
+    XMLName handle = this.handles[this.top];
+    return handle != null ? handle.closeTag : this.closeTags[this.top];
+  }
+
+  /**
+   * @return The length of the end tag of the current element.
+   */
+  int closeTagLength() {
+    return this.closeTagLengths[this.top];
+  }
+
+  /**
+   * @return Whether the current element has children.
+   */
+  boolean hasChildren() {
+    return this.hasChildren[this.top];
+  }
+
+  /**
+   * @return The index of the namespace frame declared by the current element (-1 if none).
+   */
+  int frame() {
+    return this.frames[this.top];
+  }
+
+  /**
+   * Returns the index of the next element, growing the arrays if necessary.
+   *
+   * @return The index of the new current element.
+   */
+  private int next() {
+    int i = ++this.top;
+    if (i == this.names.length) {
+      int capacity = i * 2;
+      this.names = Arrays.copyOf(this.names, capacity);
+      this.handles = Arrays.copyOf(this.handles, capacity);
+      this.closeTags = Arrays.copyOf(this.closeTags, capacity);
+      Arrays.fill(this.closeTags, i, capacity, NO_CHARS);
+      this.closeTagLengths = Arrays.copyOf(this.closeTagLengths, capacity);
+      this.hasChildren = Arrays.copyOf(this.hasChildren, capacity);
+      this.frames = Arrays.copyOf(this.frames, capacity);
+    }
+    return i;
+  }
+
+  /**
+   * Returns the length of the tag name at the start of an element name.
+   *
+   * <p>Element names may include inline attributes after the tag name, which must not be
+   * repeated in the end tag.
+   *
+   * @param name The name of the element, possibly including attributes.
+   *
+   * @return The length of the tag name.
+   */
+  private static int tagNameLength(String name) {
+    int x = name.indexOf(' ');
+    return x < 0 ? name.length() : x;
+  }
+
+  /**
+   * @param capacity The number of depths.
+   *
+   * @return Empty end tag buffers for the specified number of depths.
+   */
+  private static char[][] newCloseTags(int capacity) {
+    char[][] tags = new char[capacity][];
+    Arrays.fill(tags, NO_CHARS);
+    return tags;
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * An unbuffered output appending the XML data directly to a string builder.
+ *
+ * <p>Unlike a <code>StringWriter</code>, there is no lock to acquire and no intermediate
+ * buffer: characters are copied once, straight into the string builder supplied by the caller.
+ *
+ * <p>As there is nothing to write through, draining, flushing and closing this output has no
+ * effect.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class StringBuilderOutput extends XMLOutput {
+
+  /**
+   * The string builder to append the characters to.
+   */
+  private final StringBuilder sink;
+
+  /**
+   * Creates a new output appending to the specified string builder.
+   *
+   * @param sink The string builder to append the characters to.
+   *
+   * @throws NullPointerException If the string builder is <code>null</code>.
+   */
+  StringBuilderOutput(StringBuilder sink) {
+    this.sink = Objects.requireNonNull(sink, "XMLWriter cannot use a null string builder.");
+  }
+
+  @Override
+  public void write(int c) {
+    this.sink.append((char) c);
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) {
+    this.sink.append(cbuf, off, len);
+  }
+
+  @Override
+  public void write(String s, int off, int len) {
+    this.sink.append(s, off, off + len);
+  }
+
+  @Override
+  public StringBuilderOutput append(@Nullable CharSequence csq) {
+    this.sink.append(csq);
+    return this;
+  }
+
+  @Override
+  void writeLong(long value) {
+    this.sink.append(value);
+  }
+
+  @Override
+  void writeMarkup(char[] chars, byte[] utf8) {
+    this.sink.append(chars);
+  }
+
+  @Override
+  public void flush() {
+    // Nothing to flush
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close
+  }
+
+  @Override
+  void drain() {
+    // Nothing to drain
+  }
+
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.xmlwriter.io.ChannelOutputStream;
+
+/**
+ * An unsynchronised writer encoding characters as UTF-8 bytes directly into its own buffer.
+ *
+ * <p>This class replaces the <code>OutputStreamWriter</code> and <code>BufferedWriter</code>
+ * stack usually used to write XML to a stream: characters are encoded as they are written,
+ * so that the escape writer and the encoder operate in a single pass over the data, and the
+ * bytes are only handed to the output stream when the buffer is full, drained, flushed or
+ * closed.
+ *
+ * <p>Unpaired surrogates are replaced by '?' as the JDK UTF-8 encoder does.
+ *
+ * <p>UTF-8 data read from a channel is copied as is: from a file to a file, the operating
+ * system transfers the bytes directly without copying them through the heap.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class UTF8Output extends XMLOutput {
+
+  /**
+   * The default size of the byte buffer.
+   */
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /**
+   * The byte used to replace unpaired surrogates.
+   */
+  private static final byte REPLACEMENT = '?';
+
+  /**
+   * Where the bytes go.
+   */
+  private OutputStream out;
+
+  /**
+   * The buffer of encoded bytes.
+   */
+  private final byte[] buf;
+
+  /**
+   * The position of the next byte to write in the buffer.
+   */
+  private int pos = 0;
+
+  /**
+   * A high surrogate waiting for its low surrogate (0 if none).
+   */
+  private char highSurrogate = 0;
+
+  /**
+   * Creates a new UTF-8 output.
+   *
+   * @param out The output stream to write the bytes to.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   */
+  UTF8Output(OutputStream out) {
+    this.out = Objects.requireNonNull(out, "Cannot write UTF-8 bytes to a null output stream.");
+    this.buf = new byte[DEFAULT_BUFFER_SIZE];
+  }
+
+  /**
+   * Makes this output write to another output stream, discarding any buffered bytes.
+   *
+   * <p>The buffer is kept.
+   *
+   * @param out The output stream to write the bytes to.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   */
+  void reset(OutputStream out) {
+    this.out = Objects.requireNonNull(out, "Cannot write UTF-8 bytes to a null output stream.");
+    this.pos = 0;
+    this.highSurrogate = 0;
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    if (this.pos > this.buf.length - 4) {
+      drain();
+    }
+    encode((char) c);
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    final byte[] b = this.buf;
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      if (this.pos >= b.length - 4) {
+        drain();
+      }
+      if (this.highSurrogate != 0) {
+        encode(cbuf[i]);
+        i++;
+        continue;
+      }
+      // ASCII run: copy while keeping room to encode any other character
+      int p = this.pos;
+      int max = Math.min(end, i + b.length - 4 - p);
+      char c;
+      while (i < max && (c = cbuf[i]) < 0x80) {
+        b[p++] = (byte) c;
+        i++;
+      }
+      this.pos = p;
+      if (i < max) {
+        encode(cbuf[i++]);
+      }
+    }
+  }
+
+  @Override
+  public void write(String s, int off, int len) throws IOException {
+    final byte[] b = this.buf;
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      if (this.pos >= b.length - 4) {
+        drain();
+      }
+      if (this.highSurrogate != 0) {
+        encode(s.charAt(i));
+        i++;
+        continue;
+      }
+      int p = this.pos;
+      int max = Math.min(end, i + b.length - 4 - p);
+      char c;
+      while (i < max && (c = s.charAt(i)) < 0x80) {
+        b[p++] = (byte) c;
+        i++;
+      }
+      this.pos = p;
+      if (i < max) {
+        encode(s.charAt(i++));
+      }
+    }
+  }
+
+  @Override
+  void writeLong(long value) throws IOException {
+    replaceHighSurrogate();
+    if (this.pos > this.buf.length - MAX_LONG_LENGTH) {
+      drain();
+    }
+    final byte[] b = this.buf;
+    final int end = this.pos + decimalLength(value);
+    int p = end;
+    long q = value < 0 ? value : -value;
+    do {
+      b[--p] = (byte) digit(q);
+      q /= 10;
+    } while (q != 0);
+    if (value < 0) {
+      b[--p] = '-';
+    }
+    this.pos = end;
+  }
+
+  @Override
+  void writeMarkup(char[] chars, byte[] utf8) throws IOException {
+    replaceHighSurrogate();
+    final int len = utf8.length;
+    if (len > this.buf.length - this.pos) {
+      drain();
+      // Larger than the buffer: no point copying
+      if (len >= this.buf.length) {
+        this.out.write(utf8, 0, len);
+        return;
+      }
+    }
+    System.arraycopy(utf8, 0, this.buf, this.pos, len);
+    this.pos += len;
+  }
+
+  /**
+   * Writes the buffered bytes and flushes the underlying output stream.
+   *
+   * @throws IOException If thrown by the output stream.
+   */
+  @Override
+  public void flush() throws IOException {
+    drain();
+    this.out.flush();
+  }
+
+  /**
+   * Writes the buffered bytes and closes the underlying output stream.
+   *
+   * <p>A pending high surrogate is replaced by '?'.
+   *
+   * @throws IOException If thrown by the output stream.
+   */
+  @Override
+  public void close() throws IOException {
+    replaceHighSurrogate();
+    drain();
+    this.out.close();
+  }
+
+  /**
+   * Copies the bytes read from the specified channel after the buffered bytes.
+   *
+   * <p>When the channel is a file channel and the output stream writes to a file or to a
+   * {@link ChannelOutputStream}, the bytes are transferred by the file channel; otherwise
+   * they are copied through the buffer.
+   *
+   * @param in The channel to read the UTF-8 data from, it is not closed.
+   *
+   * @throws IOException If thrown by the channel or the output stream.
+   * @throws IllegalBlockingModeException If the channel is in non-blocking mode.
+   */
+  @Override
+  void copyUTF8(ReadableByteChannel in) throws IOException {
+    // A non-blocking channel may keep returning no bytes
+    if (in instanceof SelectableChannel && !((SelectableChannel) in).isBlocking())
+      throw new IllegalBlockingModeException();
+    finish();
+    WritableByteChannel target = in instanceof FileChannel ? targetChannel() : null;
+    if (target != null) {
+      FileChannel source = (FileChannel) in;
+      long position = source.position();
+      long size = source.size();
+      while (position < size) {
+        long n = source.transferTo(position, size - position, target);
+        if (n <= 0) break;
+        position += n;
+      }
+      source.position(position);
+    }
+    // Copy anything left through the buffer
+    ByteBuffer bytes = ByteBuffer.wrap(this.buf);
+    while (in.read(bytes) != -1) {
+      this.out.write(this.buf, 0, bytes.position());
+      bytes.clear();
+    }
+  }
+
+  /**
+   * Returns the channel the output stream writes to, if it has one.
+   *
+   * @return the channel to write to directly or <code>null</code>.
+   *
+   * @throws IOException If thrown when flushing the output stream.
+   */
+  private @Nullable WritableByteChannel targetChannel() throws IOException {
+    if (this.out instanceof FileOutputStream)
+      return ((FileOutputStream) this.out).getChannel();
+    if (this.out instanceof ChannelOutputStream) {
+      // Write the bytes it buffered first
+      this.out.flush();
+      return ((ChannelOutputStream) this.out).getChannel();
+    }
+    return null;
+  }
+
+  /**
+   * Writes the buffered bytes to the output stream without flushing or closing it.
+   *
+   * <p>A pending high surrogate is replaced by '?'.
+   *
+   * @throws IOException If thrown by the output stream.
+   */
+  void finish() throws IOException {
+    replaceHighSurrogate();
+    drain();
+  }
+
+  /**
+   * Replaces a high surrogate waiting for its low surrogate by '?'.
+   *
+   * @throws IOException If thrown by the output stream.
+   */
+  private void replaceHighSurrogate() throws IOException {
+    if (this.highSurrogate != 0) {
+      if (this.pos == this.buf.length) {
+        drain();
+      }
+      this.buf[this.pos++] = REPLACEMENT;
+      this.highSurrogate = 0;
+    }
+  }
+
+  /**
+   * Encodes the specified character into the buffer.
+   *
+   * <p>The buffer must have room for at least 4 bytes.
+   *
+   * @param c The character to encode.
+   */
+  private void encode(char c) {
+    this.pos = encode(this.highSurrogate, c, this.buf, this.pos);
+    this.highSurrogate = Character.isHighSurrogate(c) ? c : 0;
+  }
+
+  /**
+   * Encodes the specified character as UTF-8 into an array.
+   *
+   * <p>A high surrogate is only encoded with the next character, so it must be passed as the
+   * pending high surrogate when encoding the next character. Unpaired surrogates are replaced
+   * by '?'. The array must have room for at least 4 bytes.
+   *
+   * @param high The pending high surrogate (0 if none).
+   * @param c    The character to encode.
+   * @param b    The array to encode into.
+   * @param p    The position in the array to encode at.
+   *
+   * @return The position after the encoded bytes.
+   */
+  static int encode(char high, char c, byte[] b, int p) {
+    if (high != 0) {
+      if (Character.isLowSurrogate(c)) {
+        int cp = Character.toCodePoint(high, c);
+        b[p++] = (byte) (0xF0 | (cp >> 18));
+        b[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        b[p++] = (byte) (0x80 | (cp & 0x3F));
+        return p;
+      }
+      b[p++] = REPLACEMENT;
+    }
+    if (c < 0x80) {
+      b[p++] = (byte) c;
+    } else if (c < 0x800) {
+      b[p++] = (byte) (0xC0 | (c >> 6));
+      b[p++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isLowSurrogate(c)) {
+      b[p++] = REPLACEMENT;
+    } else if (!Character.isHighSurrogate(c)) {
+      b[p++] = (byte) (0xE0 | (c >> 12));
+      b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      b[p++] = (byte) (0x80 | (c & 0x3F));
+    }
+    return p;
+  }
+
+  /**
+   * Returns the number of bytes written by {@link #encode(char, char, byte[], int)}.
+   *
+   * @param high The pending high surrogate (0 if none).
+   * @param c    The character to encode.
+   *
+   * @return The number of bytes.
+   */
+  static int encodedLength(char high, char c) {
+    int length = 0;
+    if (high != 0) {
+      if (Character.isLowSurrogate(c)) return 4;
+      length++;
+    }
+    if (c < 0x80) return length + 1;
+    if (c < 0x800) return length + 2;
+    if (Character.isLowSurrogate(c)) return length + 1;
+    return Character.isHighSurrogate(c) ? length : length + 3;
+  }
+
+  @Override
+  void drain() throws IOException {
+    if (this.pos > 0) {
+      this.out.write(this.buf, 0, this.pos);
+      this.pos = 0;
+    }
+  }
+
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.xmlwriter.XML.NamespaceAware;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of XML fragments rendered once and written many times.
+ *
+ * <p>The first time a fragment is written under a key, it is rendered on its own and its
+ * output is kept both as characters and as UTF-8 bytes. Later writes of the same key and
+ * version copy the output in bulk into the XML writer without calling the fragment again.
+ * For example:
+ * <pre>
+ *   XMLFragmentCache cache = new XMLFragmentCache(16 * 1024 * 1024);
+ *
+ *   cache.write(xml, "navigation", site.getVersion(), navigation);
+ * </pre>
+ *
+ * <p>Fragments must be self-contained: they may only write complete elements, text,
+ * comments or processing instructions, and any namespace they use must be declared within
+ * them. They are rendered without indentation.
+ *
+ * <p>The size of the cache is bounded by a budget in bytes, counting the characters and the
+ * UTF-8 bytes of the rendered output. When a new fragment exceeds the budget, fragments are
+ * evicted in approximate least recently used order: the least recently used of a small sample
+ * of fragments is evicted until the cache is within budget. A fragment larger than the budget
+ * is written without being cached.
+ *
+ * <p>Only the XML writers of this package can copy the rendered output; with other XML
+ * writers, the fragment is simply written.
+ *
+ * <p>Versions must increase: a fragment rendered for a version lower than the one cached
+ * under the same key is written but not cached.
+ *
+ * <p>This class is thread-safe. Reading a cached fragment does not lock: the fragment is
+ * looked up in a concurrent map and its last use is recorded as a stamp. Only storing and
+ * evicting fragments is synchronised, and fragments are rendered and copied into the XML
+ * writer without holding the lock. A fragment missing from the cache may be rendered by
+ * several threads at the same time; a render finishing late does not replace a higher
+ * version cached in the meantime.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public final class XMLFragmentCache {
+
+  /**
+   * The maximum number of bytes used by the rendered fragments.
+   */
+  private final long budget;
+
+  /**
+   * The number of fragments compared to pick one to evict.
+   */
+  private static final int EVICTION_SAMPLE_SIZE = 16;
+
+  /**
+   * The rendered fragments by key.
+   */
+  private final ConcurrentHashMap<Object, Fragment> fragments = new ConcurrentHashMap<>();
+
+  /**
+   * A logical clock to record when fragments are used.
+   */
+  private final AtomicLong clock = new AtomicLong();
+
+  /**
+   * The number of bytes used by the rendered fragments, only updated under the lock.
+   */
+  private volatile long size = 0;
+
+  /**
+   * Where the next eviction sample starts, so that samples cover the whole cache in turn.
+   */
+  private @Nullable Iterator<Map.Entry<Object, Fragment>> sweep = null;
+
+  /**
+   * The number of writes copying a cached fragment.
+   */
+  private final LongAdder hits = new LongAdder();
+
+  /**
+   * The number of writes rendering the fragment.
+   */
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * The number of fragments evicted to stay within the budget.
+   */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param budget The maximum number of bytes used by the rendered fragments.
+   *
+   * @throws IllegalArgumentException If the budget is not strictly positive.
+   */
+  public XMLFragmentCache(long budget) {
+    if (budget <= 0)
+      throw new IllegalArgumentException("The budget must be strictly positive");
+    this.budget = budget;
+  }
+
+  /**
+   * Writes the specified fragment, rendering it only if it is not cached under that key and
+   * version.
+   *
+   * @param xml      The XML writer to write the fragment to.
+   * @param key      The key identifying the fragment.
+   * @param version  The version of the fragment, a higher version replaces the cached one.
+   * @param fragment The fragment to render if it is not cached.
+   *
+   * @throws IOException If thrown by the XML writer or the fragment.
+   * @throws UnclosedElementException If the fragment does not close all the elements it opens.
+   */
+  public void write(XMLWriter xml, Object key, long version, XMLWritable fragment) throws IOException {
+    Objects.requireNonNull(key, "The key is required");
+    if (!(xml instanceof XMLWriterBase || xml instanceof XMLStringWriter)) {
+      fragment.toXML(xml);
+      return;
+    }
+    Fragment cached = this.fragments.get(key);
+    if (cached != null && cached.version == version) {
+      this.hits.increment();
+      cached.lastUsed = this.clock.incrementAndGet();
+    } else {
+      this.misses.increment();
+      cached = render(key, version, fragment);
+    }
+    if (xml instanceof XMLWriterBase) {
+      ((XMLWriterBase) xml).writeMarkup(cached.chars, cached.utf8);
+    } else {
+      ((XMLStringWriter) xml).writeMarkup(cached.chars, cached.utf8);
+    }
+  }
+
+  /**
+   * Removes the fragment cached under the specified key, if any.
+   *
+   * @param key The key identifying the fragment.
+   */
+  public synchronized void invalidate(Object key) {
+    Fragment cached = this.fragments.remove(key);
+    if (cached != null) {
+      this.size -= cached.size;
+    }
+  }
+
+  /**
+   * Removes all the cached fragments, statistics are kept.
+   */
+  public synchronized void clear() {
+    this.fragments.clear();
+    this.size = 0;
+  }
+
+  /**
+   * @return The number of fragments in the cache.
+   */
+  public int count() {
+    return this.fragments.size();
+  }
+
+  /**
+   * @return The number of bytes used by the cached fragments.
+   */
+  public long size() {
+    return this.size;
+  }
+
+  /**
+   * @return The maximum number of bytes used by the cached fragments.
+   */
+  public long budget() {
+    return this.budget;
+  }
+
+  /**
+   * @return The number of writes which copied a cached fragment.
+   */
+  public long hitCount() {
+    return this.hits.sum();
+  }
+
+  /**
+   * @return The number of writes which had to render the fragment.
+   */
+  public long missCount() {
+    return this.misses.sum();
+  }
+
+  /**
+   * @return The number of fragments evicted to stay within the budget.
+   */
+  public long evictionCount() {
+    return this.evictions.sum();
+  }
+
+  /**
+   * Renders the specified fragment and caches it if it fits within the budget.
+   *
+   * @return The rendered fragment.
+   */
+  private Fragment render(Object key, long version, XMLWritable fragment) throws IOException {
+    XMLStringWriter out = new XMLStringWriter(NamespaceAware.Yes, false);
+    fragment.toXML(out);
+    out.close();
+    Fragment rendered = new Fragment(version, out.toString().toCharArray(), out.toUTF8Bytes());
+    rendered.lastUsed = this.clock.incrementAndGet();
+    if (rendered.size <= this.budget) {
+      put(key, rendered);
+    }
+    return rendered;
+  }
+
+  /**
+   * Caches the specified fragment unless the same or a higher version is already cached,
+   * then evicts fragments until the cache is within budget.
+   */
+  private synchronized void put(Object key, Fragment fragment) {
+    Fragment previous = this.fragments.get(key);
+    if (previous != null && previous.version >= fragment.version) return;
+    this.fragments.put(key, fragment);
+    this.size += previous != null ? fragment.size - previous.size : fragment.size;
+    while (this.size > this.budget) {
+      evictOne(fragment);
+    }
+  }
+
+  /**
+   * Evicts the least recently used fragment among the next sample of fragments.
+   *
+   * <p>The fragment just cached fits within the budget, so other fragments remain to be
+   * evicted while the cache is over budget; it is never evicted itself.
+   *
+   * @param added The fragment just cached.
+   */
+  private void evictOne(Fragment added) {
+    Map.Entry<Object, Fragment> eldest = null;
+    for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++) {
+      Iterator<Map.Entry<Object, Fragment>> it = this.sweep;
+      if (it == null || !it.hasNext()) {
+        it = this.fragments.entrySet().iterator();
+        this.sweep = it;
+      }
+      Map.Entry<Object, Fragment> e = it.next();
+      if (e.getValue() != added && (eldest == null || e.getValue().lastUsed < eldest.getValue().lastUsed)) {
+        eldest = e;
+      }
+    }
+    if (eldest != null && this.fragments.remove(eldest.getKey(), eldest.getValue())) {
+      this.size -= eldest.getValue().size;
+      this.evictions.increment();
+    }
+  }
+
+  /**
+   * A rendered fragment.
+   */
+  private static final class Fragment {
+
+    /**
+     * The version of the fragment.
+     */
+    final long version;
+
+    /**
+     * The rendered output as characters.
+     */
+    final char[] chars;
+
+    /**
+     * The rendered output as UTF-8 bytes.
+     */
+    final byte[] utf8;
+
+    /**
+     * The number of bytes used by the rendered output.
+     */
+    final long size;
+
+    /**
+     * When the fragment was last used, according to the clock of the cache.
+     */
+    volatile long lastUsed;
+
+    Fragment(long version, char[] chars, byte[] utf8) {
+      this.version = version;
+      this.chars = chars;
+      this.utf8 = utf8;
+      this.size = chars.length * 2L + utf8.length;
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An element or attribute name registered once and written many times.
+ *
+ * <p>The markup surrounding the name is prepared when the name is created: <code>&lt;name</code>
+ * to open an element, <code>&lt;/name&gt;</code> to close it and <code> name="</code> to start
+ * an attribute. The XML writers copy it in bulk, as characters or as UTF-8 bytes, instead of
+ * writing the name character by character.
+ *
+ * <p>Names are typically declared as constants by generators using a fixed vocabulary:
+ * <pre>
+ *   static final XMLName ITEM = XMLName.of("item");
+ *   static final XMLName ID = XMLName.of("id");
+ *
+ *   xml.openElement(ITEM);
+ *   xml.attribute(ID, 42);
+ *   xml.closeElement();
+ * </pre>
+ *
+ * <p>Unlike the names passed as strings, a name handle cannot include inline attributes or a
+ * namespace prefix mapped by the XML writer.
+ *
+ * <p>This class is immutable and can be shared by any number of XML writers.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public final class XMLName {
+
+  /**
+   * The name.
+   */
+  private final String name;
+
+  /**
+   * The start of the open tag as characters: <code>&lt;name</code>.
+   */
+  final char[] openTag;
+
+  /**
+   * The close tag as characters: <code>&lt;/name&gt;</code>.
+   */
+  final char[] closeTag;
+
+  /**
+   * The start of an attribute as characters: <code> name="</code>.
+   */
+  final char[] attribute;
+
+  /**
+   * The start of the open tag as UTF-8 bytes.
+   */
+  final byte[] openTagUTF8;
+
+  /**
+   * The close tag as UTF-8 bytes.
+   */
+  final byte[] closeTagUTF8;
+
+  /**
+   * The start of an attribute as UTF-8 bytes.
+   */
+  final byte[] attributeUTF8;
+
+  /**
+   * Creates a new name.
+   *
+   * @param name The name.
+   */
+  private XMLName(String name) {
+    this.name = name;
+    String open = '<' + name;
+    String close = "</" + name + '>';
+    String att = ' ' + name + "=\"";
+    this.openTag = open.toCharArray();
+    this.closeTag = close.toCharArray();
+    this.attribute = att.toCharArray();
+    this.openTagUTF8 = open.getBytes(StandardCharsets.UTF_8);
+    this.closeTagUTF8 = close.getBytes(StandardCharsets.UTF_8);
+    this.attributeUTF8 = att.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns a name handle for the specified element or attribute name.
+   *
+   * @param name The element or attribute name, possibly including a prefix.
+   *
+   * @return The corresponding name handle.
+   *
+   * @throws NullPointerException If the name is <code>null</code>.
+   * @throws IllegalArgumentException If the name is empty or includes characters which would
+   *                                  produce malformed markup.
+   */
+  public static XMLName of(String name) {
+    if (name.isEmpty())
+      throw new IllegalArgumentException("The name must not be empty");
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c <= ' ' || c == '<' || c == '>' || c == '&' || c == '"' || c == '\'' || c == '=' || c == '/')
+        throw new IllegalArgumentException("Not a valid XML name: " + name);
+    }
+    return new XMLName(name);
+  }
+
+  /**
+   * @return The name.
+   */
+  @Override
+  public String toString() {
+    return this.name;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) return true;
+    if (!(o instanceof XMLName)) return false;
+    return this.name.equals(((XMLName) o).name);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.name.hashCode();
+  }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The buffered output owned by an XML writer.
+ *
+ * <p>Implementations buffer the XML data and only hand it to the actual sink in bulk, when
+ * the buffer is full, drained, flushed or closed.
+ *
+ * <p>Unlike most writers, implementations must not synchronise on a lock: they are only ever
+ * used by the XML writer owning them and by its escape writer.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+abstract class XMLOutput extends Writer {
+
+  /**
+   * The maximum number of characters in the decimal representation of a <code>long</code>.
+   */
+  static final int MAX_LONG_LENGTH = 20;
+
+  @Override
+  public abstract void write(int c) throws IOException;
+
+  @Override
+  public abstract void write(char[] cbuf, int off, int len) throws IOException;
+
+  @Override
+  public abstract void write(String s, int off, int len) throws IOException;
+
+  @Override
+  public final void write(char[] cbuf) throws IOException {
+    write(cbuf, 0, cbuf.length);
+  }
+
+  @Override
+  public final void write(String s) throws IOException {
+    write(s, 0, s.length());
+  }
+
+  @Override
+  public final Writer append(char c) throws IOException {
+    write(c);
+    return this;
+  }
+
+  /**
+   * Writes the decimal representation of the specified number.
+   *
+   * <p>Implementations write the digits directly into their buffer without creating a string.
+   *
+   * @param value The number to write.
+   *
+   * @throws IOException If thrown by the sink.
+   */
+  abstract void writeLong(long value) throws IOException;
+
+  /**
+   * Writes markup which has been prepared in advance both as characters and as UTF-8 bytes.
+   *
+   * <p>Implementations copy whichever form they buffer in bulk.
+   *
+   * @param chars The markup as characters.
+   * @param utf8  The same markup encoded as UTF-8 bytes.
+   *
+   * @throws IOException If thrown by the sink.
+   */
+  abstract void writeMarkup(char[] chars, byte[] utf8) throws IOException;
+
+  /**
+   * Writes a sequence of characters without converting it to a string first.
+   *
+   * <p>By default, the characters are copied in chunks through a temporary array;
+   * implementations buffering characters copy them directly into their buffer.
+   *
+   * @param csq The characters to write, "null" is written if <code>null</code>.
+   *
+   * @return this output.
+   *
+   * @throws IOException If thrown by the sink.
+   */
+  @Override
+  public XMLOutput append(@Nullable CharSequence csq) throws IOException {
+    CharSequence s = csq != null ? csq : "null";
+    if (s instanceof String) {
+      write((String) s, 0, s.length());
+    } else if (s instanceof CharBuffer && ((CharBuffer) s).hasArray()) {
+      CharBuffer cb = (CharBuffer) s;
+      write(cb.array(), cb.arrayOffset() + cb.position(), cb.remaining());
+    } else {
+      final int len = s.length();
+      char[] chunk = new char[Math.min(len, 1024)];
+      for (int i = 0; i < len; i += chunk.length) {
+        int n = Math.min(len - i, chunk.length);
+        getChars(s, i, i + n, chunk, 0);
+        write(chunk, 0, n);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Copies the specified characters of a sequence into an array.
+   *
+   * @param s        The sequence of characters.
+   * @param start    The index of the first character to copy.
+   * @param end      The index after the last character to copy.
+   * @param dst      The array to copy the characters to.
+   * @param dstBegin The position in the array of the first character.
+   */
+  static void getChars(CharSequence s, int start, int end, char[] dst, int dstBegin) {
+    if (s instanceof String) {
+      ((String) s).getChars(start, end, dst, dstBegin);
+    } else if (s instanceof StringBuilder) {
+      ((StringBuilder) s).getChars(start, end, dst, dstBegin);
+    } else if (s instanceof StringBuffer) {
+      ((StringBuffer) s).getChars(start, end, dst, dstBegin);
+    } else {
+      for (int i = start; i < end; i++) {
+        dst[dstBegin + i - start] = s.charAt(i);
+      }
+    }
+  }
+
+  /**
+   * Copies all the UTF-8 data read from the specified channel.
+   *
+   * <p>By default, the bytes are decoded and written as characters; implementations writing
+   * bytes should copy them as is instead.
+   *
+   * @param in The channel to read the UTF-8 data from, it is not closed.
+   *
+   * @throws IOException If thrown by the channel or the sink, or if the data is not valid UTF-8.
+   */
+  void copyUTF8(ReadableByteChannel in) throws IOException {
+    // Not closed as that would close the channel
+    Reader reader = Channels.newReader(in, StandardCharsets.UTF_8);
+    char[] chars = new char[4096];
+    int n;
+    while ((n = reader.read(chars)) != -1) {
+      write(chars, 0, n);
+    }
+  }
+
+  /**
+   * Returns the number of characters in the decimal representation of the specified number.
+   *
+   * @param value The number
+   *
+   * @return the number of characters including the minus sign if any.
+   */
+  static int decimalLength(long value) {
+    // Work on negative values so that Long.MIN_VALUE is handled as well
+    long q = value < 0 ? value : -value;
+    int n = value < 0 ? 2 : 1;
+    while (q <= -10) {
+      q /= 10;
+      n++;
+    }
+    return n;
+  }
+
+  /**
+   * Returns the ASCII digit for the remainder of a negative number divided by 10.
+   *
+   * @param q A negative number or zero.
+   *
+   * @return The corresponding digit
+   */
+  static int digit(long q) {
+    return '0' - (int) (q % 10);
+  }
+
+  /**
+   * Writes the buffered data to the sink without flushing it.
+   *
+   * @throws IOException If thrown by the sink.
+   */
+  abstract void drain() throws IOException;
+
+}
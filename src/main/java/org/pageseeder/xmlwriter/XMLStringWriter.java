@@ -16,7 +16,11 @@
 package org.pageseeder.xmlwriter;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.ReadableByteChannel;
 
 import org.jspecify.annotations.Nullable;
 import org.pageseeder.xmlwriter.XML.NamespaceAware;
@@ -24,11 +28,18 @@ import org.pageseeder.xmlwriter.XML.NamespaceAware;
 /**
  * An XML which writes on to a string.
  *
- * <p>This XML writer is backed by a {@link StringWriter} and will defer the XML writer's method to
- * either a {@link XMLWriterImpl} or {@link XMLWriterNSImpl} depending on whether namespace support is
- * required.
+ * <p>This XML writer is backed by an unsynchronised buffer made of chunks of characters and will
+ * defer the XML writer's method to either a {@link XMLWriterImpl} or {@link XMLWriterNSImpl}
+ * depending on whether namespace support is required.
  *
- * <p>The write methods do not throw any {@link IOException}.
+ * <p>The buffer grows by adding chunks, so that the XML data is never copied as it grows.
+ * The content can be written to a writer or stream, encoded as UTF-8 or viewed as a
+ * {@link CharSequence} without building a string of the whole document.
+ *
+ * <p>The write methods do not throw any {@link IOException}, except those reading the data
+ * to write from a reader, stream or channel which report the errors from the source.
+ *
+ * <p>Any XML data buffered by the XML writer is flushed when the content is requested.
  *
  * <p>If the writer is not set to support namespaces, the method which require a namespace URI will
  * throw an {@link UnsupportedOperationException}.
@@ -36,14 +47,14 @@ import org.pageseeder.xmlwriter.XML.NamespaceAware;
  * @author Christophe Lauret
  *
  * @since 1.0.0
- * @version 1.1.0
+ * @version 1.2.0
  */
 public final class XMLStringWriter implements XMLWriter {
 
   /**
-   * Wraps an XML Writer
+   * Where the XML data goes.
    */
-  private final StringWriter writer;
+  private final ChunkedOutput buffer;
 
   /**
    * Wraps an XML Writer
@@ -91,8 +102,23 @@ public final class XMLStringWriter implements XMLWriter {
    * @param indent  Set the indentation flag.
    */
   public XMLStringWriter(NamespaceAware aware, boolean indent) {
-    this.writer = new StringWriter();
-    this.xml = aware == NamespaceAware.Yes? new XMLWriterNSImpl(this.writer, indent) : new XMLWriterImpl(this.writer, indent);
+    this(aware, indent, ChunkedOutput.DEFAULT_CAPACITY);
+  }
+
+  /**
+   * <p>Create a new XML string writer for a document of the expected size.
+   *
+   * <p>The capacity is only a hint used to size the buffer: the XML data can be larger.
+   *
+   * @param aware    Whether this XML writer should use namespaces.
+   * @param indent   Set the indentation flag.
+   * @param capacity The expected number of characters.
+   *
+   * @since 1.2.0
+   */
+  public XMLStringWriter(NamespaceAware aware, boolean indent, int capacity) {
+    this.buffer = new ChunkedOutput(capacity);
+    this.xml = aware == NamespaceAware.Yes? new XMLWriterNSImpl(this.buffer, indent) : new XMLWriterImpl(this.buffer, indent);
   }
 
   @Override
@@ -136,6 +162,90 @@ public final class XMLStringWriter implements XMLWriter {
     }
   }
 
+  @Override
+  public void writeText(@Nullable CharSequence text) {
+    try {
+      this.xml.writeText(text);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void writeEscapedText(XMLText text) {
+    try {
+      this.xml.writeEscapedText(text);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void writeText(int value) {
+    try {
+      this.xml.writeText(value);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void writeText(long value) {
+    try {
+      this.xml.writeText(value);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IOException If thrown by the reader.
+   */
+  @Override
+  public void writeTextFrom(Reader text) throws IOException {
+    this.xml.writeTextFrom(text);
+  }
+
+  @Override
+  public void writeBase64(byte[] data, int off, int len, int lineLength) {
+    try {
+      this.xml.writeBase64(data, off, len, lineLength);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IOException If thrown by the input stream.
+   */
+  @Override
+  public void writeBase64From(InputStream data, int lineLength) throws IOException {
+    this.xml.writeBase64From(data, lineLength);
+  }
+
+  @Override
+  public void writeHex(byte[] data, int off, int len) {
+    try {
+      this.xml.writeHex(data, off, len);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IOException If thrown by the input stream.
+   */
+  @Override
+  public void writeHexFrom(InputStream data) throws IOException {
+    this.xml.writeHexFrom(data);
+  }
+
   @Override
   public void writeCDATA(String cdata) {
     try {
@@ -163,6 +273,39 @@ public final class XMLStringWriter implements XMLWriter {
     }
   }
 
+  @Override
+  public void writeXML(@Nullable CharSequence text) {
+    try {
+      this.xml.writeXML(text);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  /**
+   * Writes XML data rendered in advance both as characters and as UTF-8 bytes.
+   *
+   * @param chars The XML data as characters.
+   * @param utf8  The same XML data encoded as UTF-8 bytes.
+   */
+  void writeMarkup(char[] chars, byte[] utf8) {
+    try {
+      ((XMLWriterBase) this.xml).writeMarkup(chars, utf8);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IOException If thrown by the channel.
+   */
+  @Override
+  public void writeXMLFrom(ReadableByteChannel xml) throws IOException {
+    this.xml.writeXMLFrom(xml);
+  }
+
   @Override
   public void writeComment(String comment) {
     try {
@@ -208,6 +351,24 @@ public final class XMLStringWriter implements XMLWriter {
     }
   }
 
+  @Override
+  public void openElement(XMLName name) {
+    try {
+      this.xml.openElement(name);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void openElement(XMLName name, boolean hasChildren) {
+    try {
+      this.xml.openElement(name, hasChildren);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
   @Override
   public void closeElement() {
     try {
@@ -226,6 +387,15 @@ public final class XMLStringWriter implements XMLWriter {
     }
   }
 
+  @Override
+  public void element(XMLName name, @Nullable String text) {
+    try {
+      this.xml.element(name, text);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
   @Override
   public void emptyElement(String element) {
     try {
@@ -244,6 +414,15 @@ public final class XMLStringWriter implements XMLWriter {
     }
   }
 
+  @Override
+  public void emptyElement(XMLName element) {
+    try {
+      this.xml.emptyElement(element);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
   @Override
   public void attribute(String name, String value) {
     try {
@@ -271,6 +450,88 @@ public final class XMLStringWriter implements XMLWriter {
     }
   }
 
+  @Override
+  public void attribute(String name, CharSequence value) {
+    try {
+      this.xml.attribute(name, value);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void escapedAttribute(String name, XMLText value) {
+    try {
+      this.xml.escapedAttribute(name, value);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void escapedAttribute(XMLName name, XMLText value) {
+    try {
+      this.xml.escapedAttribute(name, value);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void attributeList(String name, int[] values) {
+    try {
+      this.xml.attributeList(name, values);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void attributeList(String name, long[] values) {
+    try {
+      this.xml.attributeList(name, values);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IOException If thrown by the reader.
+   */
+  @Override
+  public void attributeFrom(String name, Reader value) throws IOException {
+    this.xml.attributeFrom(name, value);
+  }
+
+  @Override
+  public void attribute(XMLName name, String value) {
+    try {
+      this.xml.attribute(name, value);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void attribute(XMLName name, int value) {
+    try {
+      this.xml.attribute(name, value);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
+  @Override
+  public void attribute(XMLName name, long value) {
+    try {
+      this.xml.attribute(name, value);
+    } catch (IOException ex) {
+      // We can safely ignore, it will never occur
+    }
+  }
+
   @Override
   public void attribute(String uri, String name, String value) {
     try {
@@ -328,7 +589,104 @@ public final class XMLStringWriter implements XMLWriter {
    */
   @Override
   public String toString() {
-    return this.writer.toString();
+    flush();
+    int length = this.buffer.length();
+    char[] chars = new char[length];
+    this.buffer.getChars(0, length, chars, 0);
+    return new String(chars);
+  }
+
+  /**
+   * Writes the XML content to the specified writer.
+   *
+   * @param out The writer to write the XML content to.
+   *
+   * @throws IOException If thrown by the writer.
+   *
+   * @since 1.2.0
+   */
+  public void writeTo(Writer out) throws IOException {
+    flush();
+    this.buffer.writeTo(out);
+  }
+
+  /**
+   * Writes the XML content encoded as UTF-8 to the specified output stream.
+   *
+   * <p>The output stream is neither flushed nor closed.
+   *
+   * @param out The output stream to write the XML content to.
+   *
+   * @throws IOException If thrown by the output stream.
+   *
+   * @since 1.2.0
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    flush();
+    UTF8Output utf8 = new UTF8Output(out);
+    this.buffer.writeTo(utf8);
+    utf8.finish();
+  }
+
+  /**
+   * Returns the XML content encoded as UTF-8.
+   *
+   * <p>The length of the UTF-8 data is computed first so that the characters are encoded
+   * directly into an array of the right size.
+   *
+   * @return the XML content as UTF-8 bytes.
+   *
+   * @since 1.2.0
+   */
+  public byte[] toUTF8Bytes() {
+    flush();
+    return this.buffer.toUTF8Bytes();
+  }
+
+  /**
+   * Returns a view of the XML content as a {@link CharSequence}.
+   *
+   * <p>The view reads the characters directly from the buffer of this XML writer, so it
+   * reflects any XML data written after it was returned. Only its <code>subSequence</code>
+   * and <code>toString</code> methods copy characters.
+   *
+   * @return the XML content as a character sequence.
+   *
+   * @since 1.2.0
+   */
+  public CharSequence asCharSequence() {
+    flush();
+    return new View();
+  }
+
+  /**
+   * A live view of the XML content.
+   */
+  private final class View implements CharSequence {
+
+    @Override
+    public int length() {
+      return XMLStringWriter.this.buffer.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return XMLStringWriter.this.buffer.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if (start < 0 || end > length() || start > end)
+        throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+      char[] chars = new char[end - start];
+      XMLStringWriter.this.buffer.getChars(start, end, chars, 0);
+      return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+      return XMLStringWriter.this.toString();
+    }
   }
 
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.xmlwriter.esc.XMLEscapeUTF8;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A text value escaped once and written many times.
+ *
+ * <p>The text is escaped when the value is created, both for element content and for
+ * attribute values. The XML writers copy the escaped form in bulk, as characters or as UTF-8
+ * bytes, instead of escaping the text again every time it is written.
+ *
+ * <p>Text values are typically declared as constants for labels or cached values written
+ * frequently:
+ * <pre>
+ *   static final XMLText UNKNOWN = XMLText.of("Unknown & unassigned");
+ *   static final XMLText YES = XMLText.of("yes");
+ *
+ *   xml.openElement("status");
+ *   xml.escapedAttribute("default", YES);
+ *   xml.writeEscapedText(UNKNOWN);
+ *   xml.closeElement();
+ * </pre>
+ *
+ * <p>The text is escaped as the XML writers escape text for the UTF-8 encoding: characters
+ * outside the ASCII range are kept as is and control characters are removed.
+ *
+ * <p>This class is immutable and can be shared by any number of XML writers.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public final class XMLText {
+
+  /**
+   * The text as specified.
+   */
+  private final String value;
+
+  /**
+   * The text escaped for element content as characters.
+   */
+  final char[] text;
+
+  /**
+   * The text escaped for element content as UTF-8 bytes.
+   */
+  final byte[] textUTF8;
+
+  /**
+   * The text escaped for an attribute value as characters.
+   */
+  final char[] attValue;
+
+  /**
+   * The text escaped for an attribute value as UTF-8 bytes.
+   */
+  final byte[] attValueUTF8;
+
+  /**
+   * Creates a new text value.
+   *
+   * @param value The text as specified.
+   */
+  private XMLText(String value) {
+    this.value = value;
+    String text = Objects.requireNonNull(XMLEscapeUTF8.UTF8_ESCAPE.toElementText(value));
+    String attValue = Objects.requireNonNull(XMLEscapeUTF8.UTF8_ESCAPE.toAttributeValue(value));
+    this.text = text.toCharArray();
+    this.textUTF8 = text.getBytes(StandardCharsets.UTF_8);
+    // Share the arrays when both escaped forms are the same (no quotes)
+    if (attValue.equals(text)) {
+      this.attValue = this.text;
+      this.attValueUTF8 = this.textUTF8;
+    } else {
+      this.attValue = attValue.toCharArray();
+      this.attValueUTF8 = attValue.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Returns a text value for the specified text.
+   *
+   * @param text The text, not escaped.
+   *
+   * @return The corresponding text value.
+   *
+   * @throws NullPointerException If the text is <code>null</code>.
+   */
+  public static XMLText of(String text) {
+    return new XMLText(Objects.requireNonNull(text, "The text is required"));
+  }
+
+  /**
+   * @return The text as specified, not escaped.
+   */
+  @Override
+  public String toString() {
+    return this.value;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) return true;
+    if (!(o instanceof XMLText)) return false;
+    return this.value.equals(((XMLText) o).value);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.value.hashCode();
+  }
+
+}
@@ -18,6 +18,16 @@ package org.pageseeder.xmlwriter;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Defines a writer for XML data.
@@ -107,6 +117,140 @@ public interface XMLWriter {
    */
   void writeText(char[] text, int off, int len) throws IOException;
 
+  /**
+   * Writes the given sequence of characters correctly for the encoding of this document.
+   *
+   * <p>Does nothing if the text is <code>null</code>.
+   *
+   * <p>Implementations should escape the characters straight from the sequence; by default,
+   * the sequence is converted to a string first.
+   *
+   * @param text The text to write, for example a <code>StringBuilder</code>.
+   *
+   * @throws IOException If an I/O exception is thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeText(@Nullable CharSequence text) throws IOException {
+    if (text != null) {
+      writeText(text.toString());
+    }
+  }
+
+  /**
+   * Writes the decimal representation of the given number as text.
+   *
+   * <p>This method for number does not require escaping.
+   *
+   * @param value The number to write.
+   *
+   * @throws IOException If an I/O exception is thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeText(int value) throws IOException {
+    writeText(Integer.toString(value));
+  }
+
+  /**
+   * Writes the decimal representation of the given number as text.
+   *
+   * <p>This method for number does not require escaping.
+   *
+   * @param value The number to write.
+   *
+   * @throws IOException If an I/O exception is thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeText(long value) throws IOException {
+    writeText(Long.toString(value));
+  }
+
+  /**
+   * Writes the given text value escaped in advance.
+   *
+   * <p>Implementations should copy the escaped form as is; by default, the text is escaped
+   * again.
+   *
+   * @param text The text value to write.
+   *
+   * @throws IOException If an I/O exception is thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeEscapedText(XMLText text) throws IOException {
+    writeText(text.toString());
+  }
+
+  /**
+   * Writes all the text read from the specified reader correctly for the encoding of this
+   * document.
+   *
+   * <p>The text is streamed through a buffer of fixed size, so that large text can be written
+   * without loading it in memory. The reader is read until the end but is not closed.
+   *
+   * @param text The reader to read the text to write from.
+   *
+   * @throws IOException If thrown by the reader or the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeTextFrom(Reader text) throws IOException {
+    char[] buf = new char[4096];
+    int carry = 0;
+    int n;
+    while ((n = text.read(buf, carry, buf.length - carry)) != -1) {
+      int len = carry + n;
+      // Keep a trailing high surrogate for the next chunk so that surrogate pairs are not split
+      carry = len > 0 && Character.isHighSurrogate(buf[len - 1]) ? 1 : 0;
+      writeText(buf, 0, len - carry);
+      if (carry == 1) {
+        buf[0] = buf[len - 1];
+      }
+    }
+    if (carry == 1) {
+      writeText(buf, 0, 1);
+    }
+  }
+
+  /**
+   * Writes all the text read from the specified input stream correctly for the encoding of this
+   * document.
+   *
+   * <p>The input stream is read until the end but is not closed.
+   *
+   * @param text    The input stream to read the text to write from.
+   * @param charset The character set to decode the input stream with.
+   *
+   * @throws IOException If thrown by the input stream or the underlying writer.
+   *
+   * @see #writeTextFrom(Reader)
+   *
+   * @since 1.2.0
+   */
+  default void writeTextFrom(InputStream text, Charset charset) throws IOException {
+    writeTextFrom(new InputStreamReader(text, charset));
+  }
+
+  /**
+   * Writes the content of the specified text file correctly for the encoding of this document.
+   *
+   * @param text    The path to the text file to write.
+   * @param charset The character set of the file.
+   *
+   * @throws IOException If the file cannot be read or if thrown by the underlying writer.
+   *
+   * @see #writeTextFrom(Reader)
+   *
+   * @since 1.2.0
+   */
+  default void writeTextFrom(Path text, Charset charset) throws IOException {
+    try (InputStream in = Files.newInputStream(text)) {
+      writeTextFrom(in, charset);
+    }
+  }
+
   /**
    * Writes the given text as a CDATA section.
    *
@@ -119,6 +263,128 @@ public interface XMLWriter {
    */
   void writeCDATA(String data) throws IOException;
 
+  // Binary content
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Writes the specified bytes as Base64 text.
+   *
+   * <p>The bytes are encoded in chunks of fixed size straight into the output without being
+   * escaped, as the Base64 alphabet is safe in XML.
+   *
+   * @param data The bytes to encode.
+   * @param off  The offset of the first byte.
+   * @param len  The number of bytes to encode.
+   *
+   * @throws IOException If thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeBase64(byte[] data, int off, int len) throws IOException {
+    writeBase64(data, off, len, 0);
+  }
+
+  /**
+   * Writes the specified bytes as Base64 text wrapped in lines of the specified length.
+   *
+   * <p>Lines are separated by a line feed, a line length of 76 corresponds to MIME.
+   *
+   * @param data       The bytes to encode.
+   * @param off        The offset of the first byte.
+   * @param len        The number of bytes to encode.
+   * @param lineLength The maximum number of characters per line, 0 for no wrapping.
+   *
+   * @throws IOException If thrown by the underlying writer.
+   * @throws IllegalArgumentException If the line length is negative.
+   *
+   * @see #writeBase64(byte[], int, int)
+   *
+   * @since 1.2.0
+   */
+  default void writeBase64(byte[] data, int off, int len, int lineLength) throws IOException {
+    BinaryEncoder encoder = new BinaryEncoder(this::writeText, new char[1024], lineLength);
+    encoder.base64(data, off, len);
+    encoder.finish();
+  }
+
+  /**
+   * Writes all the bytes read from the specified input stream as Base64 text.
+   *
+   * <p>The input stream is read until the end but is not closed.
+   *
+   * @param data The input stream to read the bytes to encode from.
+   *
+   * @throws IOException If thrown by the input stream or the underlying writer.
+   *
+   * @see #writeBase64(byte[], int, int)
+   *
+   * @since 1.2.0
+   */
+  default void writeBase64From(InputStream data) throws IOException {
+    writeBase64From(data, 0);
+  }
+
+  /**
+   * Writes all the bytes read from the specified input stream as Base64 text wrapped in lines
+   * of the specified length.
+   *
+   * <p>The input stream is read until the end but is not closed.
+   *
+   * @param data       The input stream to read the bytes to encode from.
+   * @param lineLength The maximum number of characters per line, 0 for no wrapping.
+   *
+   * @throws IOException If thrown by the input stream or the underlying writer.
+   * @throws IllegalArgumentException If the line length is negative.
+   *
+   * @see #writeBase64(byte[], int, int, int)
+   *
+   * @since 1.2.0
+   */
+  default void writeBase64From(InputStream data, int lineLength) throws IOException {
+    BinaryEncoder encoder = new BinaryEncoder(this::writeText, new char[1024], lineLength);
+    encoder.base64(data);
+    encoder.finish();
+  }
+
+  /**
+   * Writes the specified bytes as hexadecimal text.
+   *
+   * <p>Each byte is written as two upper case hexadecimal digits, straight into the output
+   * without being escaped.
+   *
+   * @param data The bytes to encode.
+   * @param off  The offset of the first byte.
+   * @param len  The number of bytes to encode.
+   *
+   * @throws IOException If thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeHex(byte[] data, int off, int len) throws IOException {
+    BinaryEncoder encoder = new BinaryEncoder(this::writeText, new char[1024], 0);
+    encoder.hex(data, off, len);
+    encoder.finish();
+  }
+
+  /**
+   * Writes all the bytes read from the specified input stream as hexadecimal text.
+   *
+   * <p>The input stream is read until the end but is not closed.
+   *
+   * @param data The input stream to read the bytes to encode from.
+   *
+   * @throws IOException If thrown by the input stream or the underlying writer.
+   *
+   * @see #writeHex(byte[], int, int)
+   *
+   * @since 1.2.0
+   */
+  default void writeHexFrom(InputStream data) throws IOException {
+    BinaryEncoder encoder = new BinaryEncoder(this::writeText, new char[1024], 0);
+    encoder.hex(data);
+    encoder.finish();
+  }
+
   // XML methods
   // ----------------------------------------------------------------------------------------------
 
@@ -150,6 +416,74 @@ public interface XMLWriter {
    */
   void writeXML(char[] text, int off, int len) throws IOException;
 
+  /**
+   * Writes the given XML data from a sequence of characters.
+   *
+   * <p>The text is appended as is, therefore it should be escaped properly for the
+   * encoding used by the underlying stream writer.
+   *
+   * <p>Does nothing if the text is <code>null</code>.
+   *
+   * <p>Implementations should copy the characters straight from the sequence; by default,
+   * the sequence is converted to a string first.
+   *
+   * @param text The XML data to write, for example a <code>StringBuilder</code>.
+   *
+   * @throws IOException If an I/O exception is thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeXML(@Nullable CharSequence text) throws IOException {
+    if (text != null) {
+      writeXML(text.toString());
+    }
+  }
+
+  /**
+   * Writes all the XML data read from the specified channel.
+   *
+   * <p>The data must be UTF-8 and is included as is, so it should be a well-formed fragment,
+   * for example one serialised previously by an XML writer. The channel is read until the
+   * end but is not closed.
+   *
+   * <p>XML writers encoding UTF-8 bytes onto an output stream copy the bytes without decoding
+   * them. By default, the data is decoded and written as characters.
+   *
+   * @param xml The channel to read the XML data from.
+   *
+   * @throws IOException If thrown by the channel or the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeXMLFrom(ReadableByteChannel xml) throws IOException {
+    Reader reader = Channels.newReader(xml, StandardCharsets.UTF_8);
+    char[] buf = new char[4096];
+    int n;
+    while ((n = reader.read(buf)) != -1) {
+      writeXML(buf, 0, n);
+    }
+  }
+
+  /**
+   * Writes the content of the specified UTF-8 file as XML data.
+   *
+   * <p>When both the file and the output of an XML writer encoding UTF-8 bytes are files, the
+   * content is transferred by the operating system without being copied through the heap.
+   *
+   * @param xml The path to the file containing the XML data.
+   *
+   * @throws IOException If the file cannot be read or if thrown by the underlying writer.
+   *
+   * @see #writeXMLFrom(ReadableByteChannel)
+   *
+   * @since 1.2.0
+   */
+  default void writeXMLFrom(Path xml) throws IOException {
+    try (FileChannel in = FileChannel.open(xml)) {
+      writeXMLFrom(in);
+    }
+  }
+
   // Comments and PIs
   // ----------------------------------------------------------------------------------------------
 
@@ -237,6 +571,40 @@ public interface XMLWriter {
    */
   void openElement(String uri, String name, boolean hasChildren) throws IOException;
 
+  /**
+   * Writes a start element tag correctly indented using a name handle.
+   *
+   * <p>It is the same as <code>openElement(name, false)</code>
+   *
+   * @see #openElement(XMLName, boolean)
+   *
+   * @param name The name of the element.
+   *
+   * @throws IOException If an I/O exception occurs.
+   *
+   * @since 1.2.0
+   */
+  default void openElement(XMLName name) throws IOException {
+    openElement(name, false);
+  }
+
+  /**
+   * Writes a start element tag correctly indented using a name handle.
+   *
+   * <p>This method behaves like {@link #openElement(String, boolean)}, but implementations
+   * can write the markup prepared by the handle instead of the name.
+   *
+   * @param name        The name of the element.
+   * @param hasChildren true if this element has children.
+   *
+   * @throws IOException If an I/O exception occurs.
+   *
+   * @since 1.2.0
+   */
+  default void openElement(XMLName name, boolean hasChildren) throws IOException {
+    openElement(name.toString(), hasChildren);
+  }
+
   /**
    * Close the element automatically.
    *
@@ -268,6 +636,29 @@ public interface XMLWriter {
    */
   void element(String name, String text) throws IOException;
 
+  /**
+   * Opens element, inserts text node and closes using a name handle.
+   *
+   * <p>This method should behave like:
+   * <pre>
+   *   this.openElement(name, false);
+   *   this.writeText(text);
+   *   this.closeElement();
+   * </pre>
+   *
+   * @param name The name of the element.
+   * @param text The text of the element.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   *
+   * @since 1.2.0
+   */
+  default void element(XMLName name, @Nullable String text) throws IOException {
+    openElement(name, false);
+    writeText(text);
+    closeElement();
+  }
+
   /**
    * Writes an empty element.
    *
@@ -301,6 +692,19 @@ public interface XMLWriter {
    */
   void emptyElement(String uri, String element) throws IOException;
 
+  /**
+   * Writes an empty element using a name handle.
+   *
+   * @param element The name of the element.
+   *
+   * @throws IOException If an I/O exception occurs.
+   *
+   * @since 1.2.0
+   */
+  default void emptyElement(XMLName element) throws IOException {
+    emptyElement(element.toString());
+  }
+
   // Attributes
   // ----------------------------------------------------------------------------------------------
 
@@ -341,6 +745,184 @@ public interface XMLWriter {
    */
   void attribute(String name, long value) throws IOException;
 
+  /**
+   * Writes an attribute using a name handle.
+   *
+   * @param name  The name of the attribute.
+   * @param value The value of the attribute.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @since 1.2.0
+   */
+  default void attribute(XMLName name, String value) throws IOException {
+    attribute(name.toString(), value);
+  }
+
+  /**
+   * Writes an attribute using a name handle.
+   *
+   * <p>This method for number does not require escaping.
+   *
+   * @param name  The name of the attribute.
+   * @param value The value of the attribute.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @since 1.2.0
+   */
+  default void attribute(XMLName name, int value) throws IOException {
+    attribute(name.toString(), value);
+  }
+
+  /**
+   * Writes an attribute using a name handle.
+   *
+   * <p>This method for number does not require escaping.
+   *
+   * @param name  The name of the attribute.
+   * @param value The value of the attribute.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @since 1.2.0
+   */
+  default void attribute(XMLName name, long value) throws IOException {
+    attribute(name.toString(), value);
+  }
+
+  /**
+   * Writes an attribute whose value is a text value escaped in advance.
+   *
+   * <p>Implementations should copy the escaped form as is; by default, the text is escaped
+   * again.
+   *
+   * @param name  The name of the attribute.
+   * @param value The value of the attribute.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @since 1.2.0
+   */
+  default void escapedAttribute(String name, XMLText value) throws IOException {
+    attribute(name, value.toString());
+  }
+
+  /**
+   * Writes an attribute using a name handle whose value is a text value escaped in advance.
+   *
+   * @param name  The name handle of the attribute.
+   * @param value The value of the attribute.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @see #escapedAttribute(String, XMLText)
+   *
+   * @since 1.2.0
+   */
+  default void escapedAttribute(XMLName name, XMLText value) throws IOException {
+    escapedAttribute(name.toString(), value);
+  }
+
+  /**
+   * Writes an attribute whose value is a space-separated list of numbers.
+   *
+   * <p>For example, <code>attributeList("coords", new int[]{1, 2, 3})</code> writes
+   * <code>coords="1 2 3"</code>.
+   *
+   * <p>This method for numbers does not require escaping.
+   *
+   * @param name   The name of the attribute.
+   * @param values The values of the attribute.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @since 1.2.0
+   */
+  default void attributeList(String name, int[] values) throws IOException {
+    StringBuilder list = new StringBuilder(values.length * 4);
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) list.append(' ');
+      list.append(values[i]);
+    }
+    attribute(name, list.toString());
+  }
+
+  /**
+   * Writes an attribute whose value is a space-separated list of numbers.
+   *
+   * <p>For example, <code>attributeList("ids", new long[]{1, 2, 3})</code> writes
+   * <code>ids="1 2 3"</code>.
+   *
+   * <p>This method for numbers does not require escaping.
+   *
+   * @param name   The name of the attribute.
+   * @param values The values of the attribute.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @since 1.2.0
+   */
+  default void attributeList(String name, long[] values) throws IOException {
+    StringBuilder list = new StringBuilder(values.length * 8);
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) list.append(' ');
+      list.append(values[i]);
+    }
+    attribute(name, list.toString());
+  }
+
+  /**
+   * Writes an attribute whose value is a sequence of characters.
+   *
+   * <p>Implementations should escape the characters straight from the sequence; by default,
+   * the sequence is converted to a string first.
+   *
+   * @param name  The name of the attribute.
+   * @param value The value of the attribute, for example a <code>StringBuilder</code>.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @since 1.2.0
+   */
+  default void attribute(String name, CharSequence value) throws IOException {
+    attribute(name, value.toString());
+  }
+
+  /**
+   * Writes an attribute whose value is read from the specified reader.
+   *
+   * <p>The reader is read until the end but is not closed.
+   *
+   * <p>Implementations should stream the value through a buffer of fixed size; by default the
+   * value is read into a string first.
+   *
+   * @param name  The name of the attribute.
+   * @param value The reader to read the value of the attribute from.
+   *
+   * @throws IOException If thrown by the reader or the underlying writer.
+   * @throws IllegalStateException If there is no open element or text has been written.
+   *
+   * @since 1.2.0
+   */
+  default void attributeFrom(String name, Reader value) throws IOException {
+    StringBuilder s = new StringBuilder();
+    char[] buf = new char[4096];
+    int n;
+    while ((n = value.read(buf)) != -1) {
+      s.append(buf, 0, n);
+    }
+    attribute(name, s.toString());
+  }
+
   /**
    * Writes an attribute.
    *
@@ -16,7 +16,11 @@
 package org.pageseeder.xmlwriter;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Objects;
 
 import org.jspecify.annotations.Nullable;
@@ -31,24 +35,38 @@ import org.pageseeder.xmlwriter.esc.XMLEscapeWriterUTF8;
  * <p>This version only supports utf-8 encoding, if writing to a file make sure that the
  * encoding of the file output stream is "utf-8".
  *
- * <p>The recommended implementation is to use a <code>BufferedWriter</code> to write.
+ * <p>The XML data is buffered by this class, so there is no need to wrap the writer in a
+ * <code>BufferedWriter</code>.
  *
  * <pre>
- *  Writer writer =
- *     new BufferedWriter(new OutputStreamWriter(new FileOutputStream("foo.out"),"utf-8"));
+ *  Writer writer = new OutputStreamWriter(new FileOutputStream("foo.out"),"utf-8");
  * </pre>
  *
+ * <p>When writing to an output stream, the XML writer can also encode the UTF-8 bytes itself
+ * so that no <code>OutputStreamWriter</code> is required.
+ *
+ * <p>In either case, the output is buffered by the XML writer and only written to the
+ * underlying writer or stream in bulk: when the buffer is full, when the document element
+ * is closed and when the XML writer is flushed or closed.
+ *
  * @author Christophe Lauret
  *
  * @since 1.0.0
- * @version 1.1.0
+ * @version 1.2.0
  */
 abstract class XMLWriterBase implements XMLWriter {
 
+  /**
+   * The indentation run without any indentation characters.
+   */
+  private static final char[] NEW_LINE = new char[]{'\n'};
+
   /**
    * Where the XML data goes.
+   *
+   * <p>This is a buffer owned by this XML writer in front of the actual writer or stream.
    */
-  final Writer writer;
+  XMLOutput writer;
 
   /**
    * Encoding of the output XML.
@@ -79,6 +97,26 @@ abstract class XMLWriterBase implements XMLWriter {
    */
   private @Nullable String indentChars = null;
 
+  /**
+   * A new line followed by the indentation characters repeated for the deepest level reached so far.
+   *
+   * <p>The new line and indentation for any depth are written from this run in a single bulk write.
+   */
+  private char[] indentRun = NEW_LINE;
+
+  /**
+   * Indicates that a new line is due before the next content.
+   *
+   * <p>The new line after a tag is deferred so that it is written along with the indentation
+   * of the next tag.
+   */
+  private boolean newLinePending = false;
+
+  /**
+   * A buffer reused to stream text and binary content, allocated on first use.
+   */
+  private char @Nullable [] scratch = null;
+
   /**
    * Flag to indicate that the element open tag is not finished yet.
    */
@@ -95,8 +133,45 @@ abstract class XMLWriterBase implements XMLWriter {
    * @throws NullPointerException If the writer is <code>null</code>.
    */
   protected XMLWriterBase(Writer writer, boolean indentEnabled) throws NullPointerException {
-    this.writer = Objects.requireNonNull(writer, "XMLWriter cannot use a null writer.");
-    this.writerEscape = new XMLEscapeWriterUTF8(writer);
+    this(new CharOutput(writer), indentEnabled);
+  }
+
+  /**
+   * <p>Creates a new XML writer appending the XML data directly to a string builder, without
+   * any buffer or lock.
+   *
+   * @param sink          Where this writer should append the XML data.
+   * @param indentEnabled Set the indentation flag.
+   *
+   * @throws NullPointerException If the string builder is <code>null</code>.
+   *
+   * @since 1.2.0
+   */
+  protected XMLWriterBase(StringBuilder sink, boolean indentEnabled) throws NullPointerException {
+    this(new StringBuilderOutput(sink), indentEnabled);
+  }
+
+  /**
+   * <p>Creates a new XML writer encoding the XML data as UTF-8 bytes onto an output stream.
+   *
+   * @param out           Where this writer should write the XML data.
+   * @param indentEnabled Set the indentation flag.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   */
+  protected XMLWriterBase(OutputStream out, boolean indentEnabled) throws NullPointerException {
+    this(new UTF8Output(out), indentEnabled);
+  }
+
+  /**
+   * <p>Creates a new XML writer on the specified output.
+   *
+   * @param output        Where this writer should write the XML data.
+   * @param indentEnabled Set the indentation flag.
+   */
+  XMLWriterBase(XMLOutput output, boolean indentEnabled) {
+    this.writer = output;
+    this.writerEscape = new XMLEscapeWriterUTF8(output);
     this.indentEnabled = indentEnabled;
     if (indentEnabled) {
       this.indentChars = "  ";
@@ -124,7 +199,10 @@ abstract class XMLWriterBase implements XMLWriter {
           throw new IllegalArgumentException("Not a valid indentation string.");
       }
     }
-    // update the flags
+    // update the flags (keeping the indentation run if the characters are the same)
+    if (!Objects.equals(spaces, this.indentChars)) {
+      this.indentRun = NEW_LINE;
+    }
     this.indentChars = spaces;
     this.indentEnabled = spaces != null;
   }
@@ -135,6 +213,8 @@ abstract class XMLWriterBase implements XMLWriter {
    * <p>The encoding must match the encoding used if there is an underlying
    * <code>OutputStreamWriter</code>.
    *
+   * <p>When this writer encodes the bytes itself, only "utf-8" is valid.
+   *
    * @param encoding The encoding to use.
    *
    * @throws IllegalArgumentException If the encoding is not valid.
@@ -143,9 +223,150 @@ abstract class XMLWriterBase implements XMLWriter {
   public final void setEncoding(String encoding) throws IllegalStateException, IllegalArgumentException {
     if (this.depth != 0)
       throw new IllegalStateException("Too late to set the encoding!");
+    if (this.writer instanceof UTF8Output && !"utf-8".equalsIgnoreCase(encoding))
+      throw new IllegalArgumentException("This writer only supports the utf-8 encoding.");
     this.encoding = encoding;
   }
 
+  /**
+   * Resets this XML writer so that it can write a new document to the specified writer.
+   *
+   * <p>The state of the current document is discarded, including any XML data which has not
+   * been written yet, so this XML writer should be closed or flushed first. The indentation
+   * and the encoding are kept, as well as the buffers, element stack and escape writer so
+   * that the same instance can be reused for many documents without allocating them again.
+   *
+   * @param writer Where this writer should write the XML data.
+   *
+   * @throws NullPointerException If the writer is <code>null</code>.
+   *
+   * @since 1.2.0
+   */
+  public final void reset(Writer writer) {
+    if (this.writer instanceof CharOutput) {
+      ((CharOutput) this.writer).reset(writer);
+    } else {
+      setOutput(new CharOutput(writer));
+    }
+    resetDocument();
+  }
+
+  /**
+   * Resets this XML writer so that it can write a new document as UTF-8 onto the specified
+   * output stream.
+   *
+   * <p>The state of the current document is discarded, including any XML data which has not
+   * been written yet, so this XML writer should be closed or flushed first. The indentation
+   * is kept, as well as the buffers, element stack and escape writer so that the same instance
+   * can be reused for many documents without allocating them again.
+   *
+   * @param out Where this writer should write the XML data.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   *
+   * @since 1.2.0
+   */
+  public final void reset(OutputStream out) {
+    if (this.writer instanceof UTF8Output) {
+      ((UTF8Output) this.writer).reset(out);
+    } else {
+      setOutput(new UTF8Output(out));
+      this.encoding = "utf-8";
+    }
+    resetDocument();
+  }
+
+  /**
+   * Detaches this XML writer from the writer or stream it was writing to, so that it is not
+   * retained while the XML writer is not used.
+   */
+  final void detach() {
+    if (this.writer instanceof UTF8Output) {
+      ((UTF8Output) this.writer).reset(OutputStream.nullOutputStream());
+    } else if (this.writer instanceof CharOutput) {
+      ((CharOutput) this.writer).reset(Writer.nullWriter());
+    } else {
+      setOutput(new CharOutput(Writer.nullWriter()));
+    }
+    resetDocument();
+  }
+
+  /**
+   * Escapes all the characters read from the specified reader through the scratch buffer.
+   *
+   * <p>A high surrogate read at the end of a chunk is kept for the next chunk so that the
+   * escape writer always receives surrogate pairs in full.
+   *
+   * @param in        The reader to read the characters from.
+   * @param attribute <code>true</code> to escape for an attribute value; <code>false</code> for text.
+   *
+   * @throws IOException If thrown by the reader or the underlying writer.
+   */
+  private void copyEscaped(Reader in, boolean attribute) throws IOException {
+    char[] buf = scratch();
+    int carry = 0;
+    int n;
+    while ((n = in.read(buf, carry, buf.length - carry)) != -1) {
+      int len = carry + n;
+      carry = len > 0 && Character.isHighSurrogate(buf[len - 1]) ? 1 : 0;
+      escape(buf, len - carry, attribute);
+      if (carry == 1) {
+        buf[0] = buf[len - 1];
+      }
+    }
+    if (carry == 1) {
+      escape(buf, 1, attribute);
+    }
+  }
+
+  /**
+   * @return The buffer reused to stream text, allocated on first use.
+   */
+  private char[] scratch() {
+    char[] buf = this.scratch;
+    if (buf == null) {
+      buf = new char[4096];
+      this.scratch = buf;
+    }
+    return buf;
+  }
+
+  /**
+   * Escapes the first characters of the specified buffer.
+   */
+  private void escape(char[] buf, int len, boolean attribute) throws IOException {
+    if (attribute) {
+      this.writerEscape.writeAttValue(buf, 0, len);
+    } else {
+      this.writerEscape.writeText(buf, 0, len);
+    }
+  }
+
+  /**
+   * Replaces the output of this XML writer.
+   *
+   * @param output Where this writer should write the XML data.
+   */
+  private void setOutput(XMLOutput output) {
+    this.writer = output;
+    this.writerEscape = new XMLEscapeWriterUTF8(output);
+  }
+
+  /**
+   * Discards the state of the current document.
+   */
+  private void resetDocument() {
+    this.depth = 0;
+    this.isOpenTagComplete = true;
+    this.newLinePending = false;
+    resetElements();
+  }
+
+  /**
+   * Discards the open elements and any namespace state of the current document.
+   */
+  abstract void resetElements();
+
   // Write text methods
   // ----------------------------------------------------------------------------------------------
 
@@ -162,12 +383,43 @@ abstract class XMLWriterBase implements XMLWriter {
     this.writerEscape.writeText(text, off, len);
   }
 
+  @Override
+  public final void writeText(@Nullable CharSequence text) throws IOException {
+    if (text == null) return;
+    completeOpenTag();
+    this.writerEscape.writeText(text);
+  }
+
   @Override
   public final void writeText(char c) throws IOException {
     completeOpenTag();
     this.writerEscape.writeText(c);
   }
 
+  @Override
+  public final void writeText(int value) throws IOException {
+    completeOpenTag();
+    this.writer.writeLong(value);
+  }
+
+  @Override
+  public final void writeText(long value) throws IOException {
+    completeOpenTag();
+    this.writer.writeLong(value);
+  }
+
+  @Override
+  public final void writeEscapedText(XMLText text) throws IOException {
+    completeOpenTag();
+    this.writer.writeMarkup(text.text, text.textUTF8);
+  }
+
+  @Override
+  public final void writeTextFrom(Reader text) throws IOException {
+    completeOpenTag();
+    copyEscaped(text, false);
+  }
+
   /**
    * Writes the string value of an object.
    *
@@ -188,6 +440,48 @@ abstract class XMLWriterBase implements XMLWriter {
     }
   }
 
+  // Binary content
+  // ----------------------------------------------------------------------------------------------
+
+  @Override
+  public final void writeBase64(byte[] data, int off, int len, int lineLength) throws IOException {
+    BinaryEncoder encoder = newEncoder(lineLength);
+    encoder.base64(data, off, len);
+    encoder.finish();
+  }
+
+  @Override
+  public final void writeBase64From(InputStream data, int lineLength) throws IOException {
+    BinaryEncoder encoder = newEncoder(lineLength);
+    encoder.base64(data);
+    encoder.finish();
+  }
+
+  @Override
+  public final void writeHex(byte[] data, int off, int len) throws IOException {
+    BinaryEncoder encoder = newEncoder(0);
+    encoder.hex(data, off, len);
+    encoder.finish();
+  }
+
+  @Override
+  public final void writeHexFrom(InputStream data) throws IOException {
+    BinaryEncoder encoder = newEncoder(0);
+    encoder.hex(data);
+    encoder.finish();
+  }
+
+  /**
+   * Returns an encoder writing straight into the output through the scratch buffer.
+   *
+   * @param lineLength The maximum number of characters per line, 0 for no wrapping.
+   */
+  private BinaryEncoder newEncoder(int lineLength) throws IOException {
+    BinaryEncoder encoder = new BinaryEncoder(this.writer::write, scratch(), lineLength);
+    completeOpenTag();
+    return encoder;
+  }
+
   // Write XML methods
   // ----------------------------------------------------------------------------------------------
 
@@ -204,6 +498,32 @@ abstract class XMLWriterBase implements XMLWriter {
     this.writer.write(text, off, len);
   }
 
+  /**
+   * Writes XML data rendered in advance both as characters and as UTF-8 bytes.
+   *
+   * @param chars The XML data as characters.
+   * @param utf8  The same XML data encoded as UTF-8 bytes.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  final void writeMarkup(char[] chars, byte[] utf8) throws IOException {
+    completeOpenTag();
+    this.writer.writeMarkup(chars, utf8);
+  }
+
+  @Override
+  public final void writeXML(@Nullable CharSequence text) throws IOException {
+    if (text == null) return;
+    completeOpenTag();
+    this.writer.append(text);
+  }
+
+  @Override
+  public final void writeXMLFrom(ReadableByteChannel xml) throws IOException {
+    completeOpenTag();
+    this.writer.copyUTF8(xml);
+  }
+
   // Processing Instructions, CDATA sections and comments
   // ----------------------------------------------------------------------------------------------
 
@@ -268,7 +588,7 @@ abstract class XMLWriterBase implements XMLWriter {
     this.writer.write(name);
     this.writer.write('=');
     this.writer.write('"');
-    this.writer.write(Integer.toString(value));
+    this.writer.writeLong(value);
     this.writer.write('"');
   }
 
@@ -279,7 +599,100 @@ abstract class XMLWriterBase implements XMLWriter {
     this.writer.write(name);
     this.writer.write('=');
     this.writer.write('"');
-    this.writer.write(Long.toString(value));
+    this.writer.writeLong(value);
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void attributeList(String name, int[] values) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.write(' ');
+    this.writer.write(name);
+    this.writer.write('=');
+    this.writer.write('"');
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) this.writer.write(' ');
+      this.writer.writeLong(values[i]);
+    }
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void attributeList(String name, long[] values) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.write(' ');
+    this.writer.write(name);
+    this.writer.write('=');
+    this.writer.write('"');
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) this.writer.write(' ');
+      this.writer.writeLong(values[i]);
+    }
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void attribute(String name, CharSequence value) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.write(' ');
+    this.writer.write(name);
+    this.writer.write('=');
+    this.writer.write('"');
+    this.writerEscape.writeAttValue(value);
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void escapedAttribute(String name, XMLText value) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.write(' ');
+    this.writer.write(name);
+    this.writer.write('=');
+    this.writer.write('"');
+    this.writer.writeMarkup(value.attValue, value.attValueUTF8);
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void attributeFrom(String name, Reader value) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.write(' ');
+    this.writer.write(name);
+    this.writer.write('=');
+    this.writer.write('"');
+    copyEscaped(value, true);
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void attribute(XMLName name, String value) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.writeMarkup(name.attribute, name.attributeUTF8);
+    this.writerEscape.writeAttValue(value);
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void escapedAttribute(XMLName name, XMLText value) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.writeMarkup(name.attribute, name.attributeUTF8);
+    this.writer.writeMarkup(value.attValue, value.attValueUTF8);
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void attribute(XMLName name, int value) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.writeMarkup(name.attribute, name.attributeUTF8);
+    this.writer.writeLong(value);
+    this.writer.write('"');
+  }
+
+  @Override
+  public final void attribute(XMLName name, long value) throws IOException {
+    if (this.isOpenTagComplete) throw new IllegalStateException("Cannot write attribute: too late!");
+    this.writer.writeMarkup(name.attribute, name.attributeUTF8);
+    this.writer.writeLong(value);
     this.writer.write('"');
   }
 
@@ -298,6 +711,7 @@ abstract class XMLWriterBase implements XMLWriter {
 
   @Override
   public final void flush() throws IOException {
+    writeNewLine();
     this.writer.flush();
   }
 
@@ -321,8 +735,71 @@ abstract class XMLWriterBase implements XMLWriter {
    * @throws IOException If thrown by the wrapped writer.
    */
   void indent() throws IOException {
+    int start = this.newLinePending ? 0 : 1;
+    int end = 1;
     if (this.indentEnabled && this.depth > 0 && this.indentChars != null) {
-      this.writer.write(this.indentChars.repeat(this.depth));
+      end += this.depth * this.indentChars.length();
+      if (end > this.indentRun.length) {
+        this.indentRun = toIndentRun(this.indentChars, Math.max(this.depth * 2, 8));
+      }
+    }
+    if (end > start) {
+      this.writer.write(this.indentRun, start, end - start);
+    }
+    this.newLinePending = false;
+  }
+
+  /**
+   * Defers a new line until the next content is written.
+   *
+   * <p>When the next content is a tag, the new line is written with its indentation.
+   */
+  final void newLine() {
+    this.newLinePending = true;
+  }
+
+  /**
+   * Writes the pending new line, if any.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  final void writeNewLine() throws IOException {
+    if (this.newLinePending) {
+      this.writer.write('\n');
+      this.newLinePending = false;
+    }
+  }
+
+  /**
+   * Returns a new line followed by the indentation characters repeated for the specified depth.
+   *
+   * @param indentChars The indentation characters.
+   * @param depth       The depth
+   *
+   * @return The indentation run for that depth.
+   */
+  private static char[] toIndentRun(String indentChars, int depth) {
+    final int n = indentChars.length();
+    char[] run = new char[1 + depth * n];
+    run[0] = '\n';
+    for (int i = 0; i < depth; i++) {
+      indentChars.getChars(0, n, run, 1 + i * n);
+    }
+    return run;
+  }
+
+  /**
+   * Writes the buffered XML data to the underlying writer or stream if the document
+   * element was just closed.
+   *
+   * <p>This makes complete documents available without having to flush the XML writer.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  final void drainIfDocumentEnd() throws IOException {
+    if (this.depth == 0) {
+      writeNewLine();
+      this.writer.drain();
     }
   }
 
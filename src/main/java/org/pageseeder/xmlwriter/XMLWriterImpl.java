@@ -18,10 +18,8 @@ package org.pageseeder.xmlwriter;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.Objects;
 
 /**
  * A simple writer for XML data that does not support namespaces.
@@ -31,35 +29,37 @@ import java.util.Objects;
  * <p>This version only supports utf-8 encoding, if writing to a file make sure that the
  * encoding of the file output stream is "utf-8".
  *
- * <p>The recommended implementation is to use a <code>BufferedWriter</code> to write.
+ * <p>The XML data is buffered by this class, so there is no need to wrap the writer in a
+ * <code>BufferedWriter</code>.
  *
  * <pre>
- *  Writer writer =
- *     new BufferedWriter(new OutputStreamWriter(new FileOutputStream("foo.out"),"utf-8"));
+ *  Writer writer = new OutputStreamWriter(new FileOutputStream("foo.out"),"utf-8");
  * </pre>
  *
+ * <p>Alternatively, this class can write directly to an output stream, in which case it
+ * encodes the UTF-8 bytes itself and no <code>Writer</code> is needed.
+ *
+ * <pre>
+ *  XMLWriter xml = new XMLWriterImpl(new FileOutputStream("foo.out"));
+ * </pre>
+ *
+ * <p>The XML data is written to the underlying writer or stream when the buffer is full,
+ * when the document element is closed and when this writer is flushed or closed.
+ *
  * <p>This class is not synchronised and does not support namespaces, and will therefore
  * throw an unsupported operation exception for each call to a method that uses namespaces.
  *
  * @author Christophe Lauret
  *
  * @since 1.0.0
- * @version 1.1.1
+ * @version 1.2.0
  */
 public final class XMLWriterImpl extends XMLWriterBase implements XMLWriter {
 
-  /**
-   * The root node.
-   */
-  private static final Element ROOT;
-  static {
-    ROOT = new Element("", true);
-  }
-
   /**
    * A stack of elements to close the elements automatically.
    */
-  private final Deque<Element> elements = new ArrayDeque<>();
+  private final ElementStack elements = new ElementStack();
 
   /**
    * <p>Creates a new XML writer.
@@ -84,20 +84,100 @@ public final class XMLWriterImpl extends XMLWriterBase implements XMLWriter {
    */
   public XMLWriterImpl(Writer writer, boolean indent) throws NullPointerException {
     super(writer, indent);
-    this.elements.push(ROOT);
   }
 
   /**
-   * Writes the angle bracket if the element open tag is not finished.
+   * <p>Creates a new XML writer appending the XML data to the specified string builder.
+   *
+   * <p>This is the most direct way to write XML in memory: the string builder is appended to
+   * without going through a writer, its lock or its buffer.
+   *
+   * @param sink Where this writer should append the XML data.
+   *
+   * @throws NullPointerException If the string builder is <code>null</code>.
+   *
+   * @since 1.2.0
+   */
+  public XMLWriterImpl(StringBuilder sink) throws NullPointerException {
+    this(sink, false);
+  }
+
+  /**
+   * <p>Creates a new XML writer appending the XML data to the specified string builder.
+   *
+   * @param sink    Where this writer should append the XML data.
+   * @param indent  Set the indentation flag.
+   *
+   * @throws NullPointerException If the string builder is <code>null</code>.
+   *
+   * @since 1.2.0
+   */
+  public XMLWriterImpl(StringBuilder sink, boolean indent) throws NullPointerException {
+    super(sink, indent);
+  }
+
+  /**
+   * <p>Creates a new XML writer encoding the XML data as UTF-8 onto an output stream.
+   *
+   * @param out Where this writer should write the XML data.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   */
+  public XMLWriterImpl(OutputStream out) throws NullPointerException {
+    this(out, false);
+  }
+
+  /**
+   * <p>Creates a new XML writer encoding the XML data as UTF-8 onto an output stream.
+   *
+   * @param out     Where this writer should write the XML data.
+   * @param indent  Set the indentation flag.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   */
+  public XMLWriterImpl(OutputStream out, boolean indent) throws NullPointerException {
+    super(out, indent);
+  }
+
+  /**
+   * <p>Creates a new XML writer on the specified output.
+   *
+   * @param output  Where this writer should write the XML data.
+   * @param indent  Set the indentation flag.
+   */
+  XMLWriterImpl(XMLOutput output, boolean indent) {
+    super(output, indent);
+  }
+
+  @Override
+  void resetElements() {
+    this.elements.clear();
+  }
+
+  /**
+   * Writes the angle bracket if the element open tag is not finished, followed by any
+   * pending new line.
    *
    * @throws IOException If thrown by the wrapped writer.
    */
   @Override
   void completeOpenTag() throws IOException {
+    finishOpenTag();
+    writeNewLine();
+  }
+
+  /**
+   * Writes the angle bracket if the element open tag is not finished.
+   *
+   * <p>The new line after the tag is left pending for the indentation of the next tag.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  private void finishOpenTag() throws IOException {
     if (!this.isOpenTagComplete) {
       this.writer.write('>');
-      if (peekElement().hasChildren && this.indentEnabled) {
-        this.writer.write('\n');
+      if (this.elements.hasChildren() && this.indentEnabled) {
+        newLine();
       }
       this.isOpenTagComplete = true;
     }
@@ -137,17 +217,39 @@ public final class XMLWriterImpl extends XMLWriterBase implements XMLWriter {
    */
   @Override
   public void openElement(String name, boolean hasChildren) throws IOException {
-    completeOpenTag();
-    if (peekElement().hasChildren) {
+    finishOpenTag();
+    if (this.elements.hasChildren()) {
       indent();
     }
-    this.elements.push(new Element(name, hasChildren));
+    this.elements.push(name, hasChildren, -1);
     this.writer.write('<');
     this.writer.write(name);
     this.isOpenTagComplete = false;
     this.depth++;
   }
 
+  /**
+   * Writes a start element tag correctly indented using a name handle.
+   *
+   * <p>The start of the tag is copied from the markup prepared by the handle.
+   *
+   * @param name        The name of the element.
+   * @param hasChildren <code>true</code> if this element has children.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  @Override
+  public void openElement(XMLName name, boolean hasChildren) throws IOException {
+    finishOpenTag();
+    if (this.elements.hasChildren()) {
+      indent();
+    }
+    this.elements.push(name, hasChildren, -1);
+    this.writer.writeMarkup(name.openTag, name.openTagUTF8);
+    this.isOpenTagComplete = false;
+    this.depth++;
+  }
+
   /**
    * Write the end element tag.
    *
@@ -156,37 +258,38 @@ public final class XMLWriterImpl extends XMLWriterBase implements XMLWriter {
    */
   @Override
   public void closeElement() throws IOException, IllegalCloseElementException {
-    Element elt = popElement();
     // reaching the end of the document
-    if (elt == ROOT)
+    if (this.elements.isRoot())
       throw new IllegalCloseElementException();
+    final @Nullable XMLName handle = this.elements.handle();
+    final char[] closeTag = this.elements.closeTag();
+    final int closeTagLength = this.elements.closeTagLength();
+    final boolean hasChildren = this.elements.hasChildren();
+    this.elements.pop();
     this.depth--;
     // this is an empty element
     if (!this.isOpenTagComplete) {
       this.writer.write('/');
+      this.writer.write('>');
       this.isOpenTagComplete = true;
       // the element contains text
     } else {
-      if (elt.hasChildren) {
+      if (hasChildren) {
         indent();
       }
-      this.writer.write('<');
-      this.writer.write('/');
-      int x = elt.name.indexOf(' ');
-      if (x < 0) {
-        this.writer.write(elt.name);
+      if (handle != null) {
+        this.writer.writeMarkup(handle.closeTag, handle.closeTagUTF8);
       } else {
-        this.writer.write(elt.name.substring(0, x));
+        this.writer.write(closeTag, 0, closeTagLength);
       }
     }
-    this.writer.write('>');
     // take care of the new line if the indentation is on
     if (this.indentEnabled) {
-      Element parent = peekElement();
-      if (parent.hasChildren && parent != ROOT) {
-        this.writer.write('\n');
+      if (this.elements.hasChildren() && !this.elements.isRoot()) {
+        newLine();
       }
     }
+    drainIfDocumentEnd();
   }
 
   /**
@@ -206,36 +309,40 @@ public final class XMLWriterImpl extends XMLWriterBase implements XMLWriter {
    */
   @Override
   public void emptyElement(String element) throws IOException {
-    completeOpenTag();
+    finishOpenTag();
     indent();
     this.writer.write('<');
     this.writer.write(element);
     this.writer.write('/');
     this.writer.write('>');
     if (this.indentEnabled) {
-      Element parent = peekElement();
-      if (parent.hasChildren && parent != ROOT) {
-        this.writer.write('\n');
+      if (this.elements.hasChildren() && !this.elements.isRoot()) {
+        newLine();
       }
     }
+    drainIfDocumentEnd();
   }
 
   /**
-   * Returns the last element in the list.
+   * Writes an empty element using a name handle.
    *
-   * @return The current element.
-   */
-  private @Nullable Element peekElement() {
-    return this.elements.peek();
-  }
-
-  /**
-   * Removes the last element in the list.
+   * @param element the name of the element
    *
-   * @return The current element.
+   * @throws IOException If thrown by the wrapped writer.
    */
-  private Element popElement() {
-    return this.elements.pop();
+  @Override
+  public void emptyElement(XMLName element) throws IOException {
+    finishOpenTag();
+    indent();
+    this.writer.writeMarkup(element.openTag, element.openTagUTF8);
+    this.writer.write('/');
+    this.writer.write('>');
+    if (this.indentEnabled) {
+      if (this.elements.hasChildren() && !this.elements.isRoot()) {
+        newLine();
+      }
+    }
+    drainIfDocumentEnd();
   }
 
   // Unsupported operations
@@ -350,42 +457,9 @@ public final class XMLWriterImpl extends XMLWriterBase implements XMLWriter {
    */
   @Override
   public void close() throws IOException, UnclosedElementException {
-    Element open = peekElement();
-    if (open != ROOT && open != null)
-      throw new UnclosedElementException(open.name);
+    if (!this.elements.isRoot())
+      throw new UnclosedElementException(this.elements.name());
     this.writer.close();
   }
 
-  // Inner class: Element
-  // ----------------------------------------------------------------------------------------------
-
-  /**
-   * A light object to keep track of the element.
-   *
-   * <p>This object does not support namespaces.
-   */
-  private static final class Element {
-
-    /**
-     * The fully qualified name of the element.
-     */
-    private final String name;
-
-    /**
-     * Indicates whether the element has children.
-     */
-    private final boolean hasChildren;
-
-    /**
-     * Creates a new Element.
-     *
-     * @param name       The qualified name of the element.
-     * @param hasChildren Whether the element has children.
-     */
-    public Element(String name, boolean hasChildren) {
-      this.name = Objects.requireNonNull(name);
-      this.hasChildren = hasChildren;
-    }
-  }
-
 }
@@ -18,6 +18,7 @@ package org.pageseeder.xmlwriter;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,37 +36,32 @@ import javax.xml.XMLConstants;
  * <p>This version only supports utf-8 encoding, if writing to a file make sure that the
  * encoding of the file output stream is "utf-8".
  *
- * <p>The recommended implementation is to use a <code>BufferedWriter</code> to write.
+ * <p>The XML data is buffered by this class, so there is no need to wrap the writer in a
+ * <code>BufferedWriter</code>.
  *
  * <pre>
- *  Writer writer =
- *     new BufferedWriter(new OutputStreamWriter(new FileOutputStream("foo.out"),"utf-8"));
+ *  Writer writer = new OutputStreamWriter(new FileOutputStream("foo.out"),"utf-8");
  * </pre>
  *
+ * <p>Alternatively, this class can write directly to an output stream, in which case it
+ * encodes the UTF-8 bytes itself and no <code>Writer</code> is needed.
+ *
+ * <pre>
+ *  XMLWriter xml = new XMLWriterNSImpl(new FileOutputStream("foo.out"));
+ * </pre>
+ *
+ * <p>The XML data is written to the underlying writer or stream when the buffer is full,
+ * when the document element is closed and when this writer is flushed or closed.
+ *
  * <p>This class is not synchronised.
  *
  * @author Christophe Lauret
  *
  * @since 1.0.0
- * @version 1.1.0
+ * @version 1.2.0
  */
 public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
 
-  /**
-   * The default namespace mapped to the empty prefix.
-   */
-  private static final PrefixMapping DEFAULT_NS = new PrefixMapping(XMLConstants.NULL_NS_URI, XMLConstants.DEFAULT_NS_PREFIX);
-
-  /**
-   * The root node.
-   */
-  private static final NSElement ROOT;
-  static {
-    List<PrefixMapping> mps = new ArrayList<>();
-    mps.add(DEFAULT_NS);
-    ROOT = new NSElement("", true, mps);
-  }
-
   /**
    * The current prefix mapping.
    */
@@ -79,7 +75,12 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
   /**
    * A stack of elements to close the elements automatically.
    */
-  private final List<NSElement> elements = new ArrayList<>();
+  private final ElementStack elements = new ElementStack();
+
+  /**
+   * The prefix mappings declared by the open elements, indexed by the element stack.
+   */
+  private final List<List<PrefixMapping>> frames = new ArrayList<>();
 
   // Constructors
   // ----------------------------------------------------------------------------------------------
@@ -107,22 +108,116 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
    */
   public XMLWriterNSImpl(Writer writer, boolean indent) throws NullPointerException {
     super(writer, indent);
-    this.elements.add(ROOT);
+    resetPrefixMapping();
+  }
+
+  /**
+   * <p>Creates a new XML writer appending the XML data to the specified string builder.
+   *
+   * <p>This is the most direct way to write XML in memory: the string builder is appended to
+   * without going through a writer, its lock or its buffer.
+   *
+   * @param sink Where this writer should append the XML data.
+   *
+   * @throws NullPointerException If the string builder is <code>null</code>.
+   *
+   * @since 1.2.0
+   */
+  public XMLWriterNSImpl(StringBuilder sink) throws NullPointerException {
+    this(sink, false);
+  }
+
+  /**
+   * <p>Creates a new XML writer appending the XML data to the specified string builder.
+   *
+   * @param sink    Where this writer should append the XML data.
+   * @param indent  Set the indentation flag.
+   *
+   * @throws NullPointerException If the string builder is <code>null</code>.
+   *
+   * @since 1.2.0
+   */
+  public XMLWriterNSImpl(StringBuilder sink, boolean indent) throws NullPointerException {
+    super(sink, indent);
+    resetPrefixMapping();
+  }
+
+  /**
+   * <p>Creates a new XML writer encoding the XML data as UTF-8 onto an output stream.
+   *
+   * @param out Where this writer should write the XML data.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   */
+  public XMLWriterNSImpl(OutputStream out) throws NullPointerException {
+    this(out, false);
+  }
+
+  /**
+   * <p>Creates a new XML writer encoding the XML data as UTF-8 onto an output stream.
+   *
+   * @param out     Where this writer should write the XML data.
+   * @param indent  Set the indentation flag.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   */
+  public XMLWriterNSImpl(OutputStream out, boolean indent) throws NullPointerException {
+    super(out, indent);
+    resetPrefixMapping();
+  }
+
+  /**
+   * <p>Creates a new XML writer on the specified output.
+   *
+   * @param output  Where this writer should write the XML data.
+   * @param indent  Set the indentation flag.
+   */
+  XMLWriterNSImpl(XMLOutput output, boolean indent) {
+    super(output, indent);
+    resetPrefixMapping();
+  }
+
+  @Override
+  void resetElements() {
+    this.elements.clear();
+    this.frames.clear();
+    this.tempMapping = null;
+    resetPrefixMapping();
+  }
+
+  /**
+   * Sets the prefix mappings to the predefined ones.
+   */
+  private void resetPrefixMapping() {
+    this.prefixMapping.clear();
     this.prefixMapping.put(XMLConstants.NULL_NS_URI, XMLConstants.DEFAULT_NS_PREFIX);
     this.prefixMapping.put(XMLConstants.XML_NS_URI, XMLConstants.XML_NS_PREFIX);
   }
 
   /**
-   * Writes the angle bracket if the element open tag is not finished.
+   * Writes the angle bracket if the element open tag is not finished, followed by any
+   * pending new line.
    *
    * @throws IOException If thrown by the wrapped writer.
    */
   @Override
   void completeOpenTag() throws IOException {
+    finishOpenTag();
+    writeNewLine();
+  }
+
+  /**
+   * Writes the angle bracket if the element open tag is not finished.
+   *
+   * <p>The new line after the tag is left pending for the indentation of the next tag.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  private void finishOpenTag() throws IOException {
     if (!this.isOpenTagComplete) {
       this.writer.write('>');
-      if (super.indentEnabled && peekElement().hasChildren) {
-        this.writer.write('\n');
+      if (super.indentEnabled && this.elements.hasChildren()) {
+        newLine();
       }
       this.isOpenTagComplete = true;
     }
@@ -199,12 +294,14 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
    */
   @Override
   public void openElement(@Nullable String uri, String name, boolean hasChildren) throws IOException {
-    completeOpenTag();
-    if (peekElement().hasChildren) {
+    finishOpenTag();
+    if (this.elements.hasChildren()) {
       indent();
+    } else {
+      writeNewLine();
     }
     String qName = getQName(uri, name);
-    this.elements.add(new NSElement(qName, hasChildren, this.tempMapping));
+    this.elements.push(qName, hasChildren, pushFrame());
     this.writer.write('<');
     this.writer.write(qName);
     handleNamespaceDeclaration();
@@ -212,6 +309,36 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
     this.depth++;
   }
 
+  /**
+   * Writes a start element tag correctly indented using a name handle.
+   *
+   * <p>The element has no namespace URI. The start of the tag is copied from the markup
+   * prepared by the handle unless the default namespace is mapped to a prefix.
+   *
+   * @param name        The name of the element.
+   * @param hasChildren <code>true</code> if this element has children.
+   *
+   * @throws IOException If thrown by the wrapped writer.
+   */
+  @Override
+  public void openElement(XMLName name, boolean hasChildren) throws IOException {
+    if (!isDefaultNamespaceUnprefixed()) {
+      openElement(null, name.toString(), hasChildren);
+      return;
+    }
+    finishOpenTag();
+    if (this.elements.hasChildren()) {
+      indent();
+    } else {
+      writeNewLine();
+    }
+    this.elements.push(name, hasChildren, pushFrame());
+    this.writer.writeMarkup(name.openTag, name.openTagUTF8);
+    handleNamespaceDeclaration();
+    this.isOpenTagComplete = false;
+    this.depth++;
+  }
+
   /**
    * Write an end element tag.
    *
@@ -219,39 +346,43 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
    */
   @Override
   public void closeElement() throws IOException {
-    NSElement elt = popElement();
     // reaching the end of the document
-    if (elt == ROOT)
+    if (this.elements.isRoot())
       throw new IllegalCloseElementException();
+    final @Nullable XMLName handle = this.elements.handle();
+    final char[] closeTag = this.elements.closeTag();
+    final int closeTagLength = this.elements.closeTagLength();
+    final boolean hasChildren = this.elements.hasChildren();
+    final int frame = this.elements.frame();
+    this.elements.pop();
     this.depth--;
     // this is an empty element
     if (!this.isOpenTagComplete) {
       this.writer.write('/');
+      this.writer.write('>');
       this.isOpenTagComplete = true;
       // the element contains text
     } else {
-      if (elt.hasChildren) {
+      if (hasChildren) {
         indent();
+      } else {
+        writeNewLine();
       }
-      this.writer.write('<');
-      this.writer.write('/');
-      int x = elt.qName.indexOf(' ');
-      if (x < 0) {
-        this.writer.write(elt.qName);
+      if (handle != null) {
+        this.writer.writeMarkup(handle.closeTag, handle.closeTagUTF8);
       } else {
-        this.writer.write(elt.qName.substring(0, x));
+        this.writer.write(closeTag, 0, closeTagLength);
       }
     }
     // restore previous mapping if necessary
-    restorePrefixMapping(elt);
-    this.writer.write('>');
+    restorePrefixMapping(frame);
     // take care of the new line if the indentation is on
     if (super.indentEnabled) {
-      NSElement parent = peekElement();
-      if (parent.hasChildren && parent != ROOT) {
-        this.writer.write('\n');
+      if (this.elements.hasChildren() && !this.elements.isRoot()) {
+        newLine();
       }
     }
+    drainIfDocumentEnd();
   }
 
   /**
@@ -284,7 +415,7 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
    */
   @Override
   public void emptyElement(@Nullable String uri, String element) throws IOException {
-    completeOpenTag();
+    finishOpenTag();
     indent();
     this.writer.write('<');
     this.writer.write(getQName(uri, element));
@@ -292,26 +423,34 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
     this.writer.write('/');
     this.writer.write('>');
     if (super.indentEnabled) {
-      this.writer.write('\n');
+      newLine();
     }
+    drainIfDocumentEnd();
   }
 
   /**
-   * Returns the last element in the list.
+   * Writes an empty element with no namespace URI using a name handle.
    *
-   * @return The current element.
-   */
-  private NSElement peekElement() {
-    return this.elements.get(this.elements.size() - 1);
-  }
-
-  /**
-   * Removes the last element in the list.
+   * @param element The name of the element.
    *
-   * @return The current element.
+   * @throws IOException If thrown by the wrapped writer.
    */
-  private NSElement popElement() {
-    return this.elements.remove(this.elements.size() - 1);
+  @Override
+  public void emptyElement(XMLName element) throws IOException {
+    if (!isDefaultNamespaceUnprefixed()) {
+      emptyElement(null, element.toString());
+      return;
+    }
+    finishOpenTag();
+    indent();
+    this.writer.writeMarkup(element.openTag, element.openTagUTF8);
+    handleNamespaceDeclaration();
+    this.writer.write('/');
+    this.writer.write('>');
+    if (super.indentEnabled) {
+      newLine();
+    }
+    drainIfDocumentEnd();
   }
 
   /**
@@ -356,7 +495,7 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
     this.writer.write(getQName(uri, name));
     this.writer.write('=');
     this.writer.write('"');
-    this.writer.write(Integer.toString(value));
+    this.writer.writeLong(value);
     this.writer.write('"');
     handleNamespaceDeclaration();
   }
@@ -381,7 +520,7 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
     this.writer.write(getQName(uri, name));
     this.writer.write('=');
     this.writer.write('"');
-    this.writer.write(Long.toString(value));
+    this.writer.writeLong(value);
     this.writer.write('"');
     handleNamespaceDeclaration();
   }
@@ -438,6 +577,17 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
       throw new UndeclaredNamespaceException(uri);
   }
 
+  /**
+   * Indicates whether elements with no namespace URI are written without a prefix, in which
+   * case the markup prepared by name handles can be used as is.
+   *
+   * @return <code>true</code> if the null namespace URI is mapped to the empty prefix.
+   */
+  private boolean isDefaultNamespaceUnprefixed() {
+    String prefix = this.prefixMapping.get(XMLConstants.NULL_NS_URI);
+    return prefix == null || prefix.isEmpty();
+  }
+
   /**
    * Handles the namespace declaration and updates the prefix mappings.
    *
@@ -462,6 +612,17 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
     }
   }
 
+  /**
+   * Records the prefix mappings to be associated with the element being opened.
+   *
+   * @return The index of the namespace frame for the element or -1 if there are no mappings.
+   */
+  private int pushFrame() {
+    if (this.tempMapping == null) return -1;
+    this.frames.add(this.tempMapping);
+    return this.frames.size() - 1;
+  }
+
   /**
    * Restores the prefix mapping after closing an element.
    *
@@ -469,30 +630,25 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
    * {@link XMLWriterNSImpl#setPrefixMapping(String, String)} have been used
    * immediately before, therefore, it should not happen often.
    *
-   * @param elt The element that had some new mappings.
+   * @param frame The index of the namespace frame of the element closed (-1 if none).
    */
-  private void restorePrefixMapping(NSElement elt) {
-    if (elt.mappings != null) {
+  private void restorePrefixMapping(int frame) {
+    if (frame >= 0) {
+      List<PrefixMapping> mappings = this.frames.remove(frame);
       // for each mapping of this element
-      for (int i = 0; i < elt.mappings.size(); i++) {
+      for (PrefixMapping mpi : mappings) {
         boolean found = false;
-        PrefixMapping mpi = elt.mappings.get(i);
         // find the first previous namespace mapping amongst the parents
         // that defines namespace mappings
-        for (int j = this.elements.size() - 1; j > 0; j--) {
-          if (this.elements.get(j).mappings != null) {
-            List<PrefixMapping> mps = this.elements.get(j).mappings;
-            // iterate through the define namespace mappings of the parent
-            for (int k = 0; k < mps.size(); k++) {
-              PrefixMapping mpk = mps.get(k);
-              // if we found a namespace prefix for the namespace
-              if (mpk.prefix.equals(mpi.prefix)) {
-                found = true;
-                removeIfNeeded(mpk.prefix);
-                this.prefixMapping.put(mpk.uri, mpk.prefix);
-                j = 0; // exit from the previous loop
-                break; // exit from this one
-              }
+        for (int j = this.frames.size() - 1; j >= 0 && !found; j--) {
+          // iterate through the define namespace mappings of the parent
+          for (PrefixMapping mpk : this.frames.get(j)) {
+            // if we found a namespace prefix for the namespace
+            if (mpk.prefix.equals(mpi.prefix)) {
+              found = true;
+              removeIfNeeded(mpk.prefix);
+              this.prefixMapping.put(mpk.uri, mpk.prefix);
+              break;
             }
           }
         }
@@ -533,53 +689,11 @@ public final class XMLWriterNSImpl extends XMLWriterBase implements XMLWriter {
    */
   @Override
   public void close() throws IOException, UnclosedElementException {
-    NSElement open = peekElement();
-    if (open != XMLWriterNSImpl.ROOT)
-      throw new UnclosedElementException(open.qName);
+    if (!this.elements.isRoot())
+      throw new UnclosedElementException(this.elements.name());
     this.writer.close();
   }
 
-  // Inner class: Element
-  // ----------------------------------------------------------------------------------------------
-
-  /**
-   * A light object to keep track of the elements
-   *
-   * @author Christophe Lauret
-   */
-  private static final class NSElement {
-
-    /**
-     * The fully qualified name of the element.
-     */
-    private final String qName;
-
-    /**
-     * A list of prefix mappings for this element.
-     *
-     * <p>Can be <code>null</code>.
-     */
-    private final @Nullable List<PrefixMapping> mappings;
-
-    /**
-     * Indicates whether the element has children.
-     */
-    private boolean hasChildren;
-
-    /**
-     * Creates a new Element.
-     *
-     * @param qName       The qualified name of the element.
-     * @param hasChildren Whether the element has children.
-     * @param mappings    The list of prefix mapping if any.
-     */
-    public NSElement(String qName, boolean hasChildren, @Nullable List<PrefixMapping> mappings) {
-      this.qName = qName;
-      this.mappings = mappings;
-      this.hasChildren = hasChildren;
-    }
-  }
-
   // Inner class: Prefix Mapping
   // ----------------------------------------------------------------------------------------------
 
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.xmlwriter.XML.NamespaceAware;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of XML writers which can be reused to write many small documents.
+ *
+ * <p>Pooled XML writers keep their buffers, element stack, prefix mappings, escape writer and
+ * indentation between documents, so that acquiring one only resets its state. For example:
+ * <pre>
+ *   XMLWriterPool pool = XMLWriterPool.newThreadLocalPool(NamespaceAware.No, false);
+ *
+ *   XMLWriter xml = pool.acquire(response.getOutputStream());
+ *   try {
+ *     xml.openElement("ok");
+ *     xml.closeElement();
+ *     xml.flush();
+ *   } finally {
+ *     pool.release(xml);
+ *   }
+ * </pre>
+ *
+ * <p>Two flavours are available: a pool keeping one XML writer per thread and a pool keeping
+ * up to a fixed number of XML writers shared by all threads. In both cases, when no XML
+ * writer is available a new one is created, and XML writers released to a full pool are
+ * discarded.
+ *
+ * <p>Pools are thread-safe, but the XML writers they return are not: an XML writer must only
+ * be used by one thread between the time it is acquired and the time it is released.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public abstract class XMLWriterPool {
+
+  /**
+   * Whether the XML writers in this pool support namespaces.
+   */
+  private final NamespaceAware aware;
+
+  /**
+   * Whether the XML writers in this pool indent the XML.
+   */
+  private final boolean indent;
+
+  /**
+   * Creates a new pool.
+   *
+   * @param aware  Whether the XML writers should support namespaces.
+   * @param indent Whether the XML writers should indent the XML.
+   */
+  XMLWriterPool(NamespaceAware aware, boolean indent) {
+    this.aware = Objects.requireNonNull(aware, "Namespace awareness is required");
+    this.indent = indent;
+  }
+
+  /**
+   * Returns a new pool keeping one XML writer for each thread.
+   *
+   * <p>This flavour does not need any synchronisation, but keeps an XML writer for every
+   * thread which has used the pool.
+   *
+   * @param aware  Whether the XML writers should support namespaces.
+   * @param indent Whether the XML writers should indent the XML.
+   *
+   * @return A new pool.
+   */
+  public static XMLWriterPool newThreadLocalPool(NamespaceAware aware, boolean indent) {
+    return new ThreadLocalPool(aware, indent);
+  }
+
+  /**
+   * Returns a new pool keeping up to the specified number of XML writers for all threads.
+   *
+   * @param aware    Whether the XML writers should support namespaces.
+   * @param indent   Whether the XML writers should indent the XML.
+   * @param capacity The maximum number of XML writers kept in the pool.
+   *
+   * @return A new pool.
+   *
+   * @throws IllegalArgumentException If the capacity is not strictly positive.
+   */
+  public static XMLWriterPool newBoundedPool(NamespaceAware aware, boolean indent, int capacity) {
+    return new BoundedPool(aware, indent, capacity);
+  }
+
+  /**
+   * Returns an XML writer from this pool ready to write a new document to the specified writer.
+   *
+   * @param writer Where the XML writer should write the XML data.
+   *
+   * @return An XML writer to release to this pool once the document has been written.
+   *
+   * @throws NullPointerException If the writer is <code>null</code>.
+   */
+  public final XMLWriter acquire(Writer writer) {
+    XMLWriterBase xml = poll();
+    if (xml == null) {
+      return this.aware == NamespaceAware.Yes ? new XMLWriterNSImpl(writer, this.indent) : new XMLWriterImpl(writer, this.indent);
+    }
+    xml.reset(writer);
+    configure(xml);
+    return xml;
+  }
+
+  /**
+   * Returns an XML writer from this pool ready to write a new document as UTF-8 onto the
+   * specified output stream.
+   *
+   * @param out Where the XML writer should write the XML data.
+   *
+   * @return An XML writer to release to this pool once the document has been written.
+   *
+   * @throws NullPointerException If the output stream is <code>null</code>.
+   */
+  public final XMLWriter acquire(OutputStream out) {
+    XMLWriterBase xml = poll();
+    if (xml == null) {
+      return this.aware == NamespaceAware.Yes ? new XMLWriterNSImpl(out, this.indent) : new XMLWriterImpl(out, this.indent);
+    }
+    xml.reset(out);
+    configure(xml);
+    return xml;
+  }
+
+  /**
+   * Gives an XML writer back to this pool.
+   *
+   * <p>The XML writer should be flushed or closed first: any XML data it has not written yet
+   * is discarded. It must not be used after it has been released.
+   *
+   * @param xml An XML writer acquired from this pool.
+   *
+   * @throws IllegalArgumentException If the XML writer was not acquired from a pool like this one.
+   */
+  public final void release(XMLWriter xml) {
+    boolean nsAware = this.aware == NamespaceAware.Yes;
+    if (!(nsAware ? xml instanceof XMLWriterNSImpl : xml instanceof XMLWriterImpl))
+      throw new IllegalArgumentException("Not an XML writer from this pool");
+    XMLWriterBase base = (XMLWriterBase) xml;
+    base.detach();
+    offer(base);
+  }
+
+  /**
+   * Restores the settings of the pool on an XML writer which has been reused.
+   *
+   * @param xml The XML writer to configure.
+   */
+  private void configure(XMLWriterBase xml) {
+    xml.setIndentChars(this.indent ? "  " : null);
+    xml.setEncoding("utf-8");
+  }
+
+  /**
+   * @return An available XML writer or <code>null</code> if there are none.
+   */
+  abstract @Nullable XMLWriterBase poll();
+
+  /**
+   * Keeps the specified XML writer in the pool if there is room for it.
+   *
+   * @param xml An XML writer which has been detached.
+   */
+  abstract void offer(XMLWriterBase xml);
+
+  /**
+   * A pool keeping one XML writer for each thread.
+   */
+  private static final class ThreadLocalPool extends XMLWriterPool {
+
+    /**
+     * The XML writer available for the current thread, if any.
+     */
+    private final ThreadLocal<@Nullable XMLWriterBase> available = new ThreadLocal<>();
+
+    ThreadLocalPool(NamespaceAware aware, boolean indent) {
+      super(aware, indent);
+    }
+
+    @Override
+    @Nullable XMLWriterBase poll() {
+      XMLWriterBase xml = this.available.get();
+      // The writer is in use until released, a nested acquisition gets a new one
+      if (xml != null) {
+        this.available.set(null);
+      }
+      return xml;
+    }
+
+    @Override
+    void offer(XMLWriterBase xml) {
+      if (this.available.get() == null) {
+        this.available.set(xml);
+      }
+    }
+  }
+
+  /**
+   * A pool keeping up to a fixed number of XML writers shared by all threads.
+   */
+  private static final class BoundedPool extends XMLWriterPool {
+
+    /**
+     * The XML writers available.
+     */
+    private final BlockingQueue<XMLWriterBase> available;
+
+    BoundedPool(NamespaceAware aware, boolean indent, int capacity) {
+      super(aware, indent);
+      if (capacity <= 0)
+        throw new IllegalArgumentException("The capacity must be strictly positive");
+      this.available = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    @Nullable XMLWriterBase poll() {
+      return this.available.poll();
+    }
+
+    @Override
+    void offer(XMLWriterBase xml) {
+      this.available.offer(xml);
+    }
+  }
+
+}
@@ -38,7 +38,7 @@ import org.w3c.dom.Text;
  * @author Christophe Lauret
  *
  * @since 1.0.0
- * @version 1.1.0
+ * @version 1.2.0
  */
 public final class DOMWriterImpl implements DOMWriter {
 
@@ -176,6 +176,19 @@ public final class DOMWriterImpl implements DOMWriter {
     this.writeText(String.valueOf(c));
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The sequence is converted to a string for the text node.
+   *
+   * @throws DOMException If thrown by the method invoked on the underlying DOM document
+   */
+  @Override
+  public void writeText(@Nullable CharSequence text) {
+    if (text == null) return;
+    this.writeText(text.toString());
+  }
+
   /**
    * Writes the string value of an object.
    *
@@ -232,6 +245,16 @@ public final class DOMWriterImpl implements DOMWriter {
     throw new UnsupportedOperationException("Cannot use unparsed XML as DOM node.");
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @throws UnsupportedOperationException XML cannot be written to the DOM
+   */
+  @Override
+  public void writeXML(@Nullable CharSequence text) {
+    throw new UnsupportedOperationException("Cannot use unparsed XML as DOM node.");
+  }
+
   // PI and comments
   // ----------------------------------------------------------------------------------------------
 
@@ -281,7 +304,7 @@ public final class DOMWriterImpl implements DOMWriter {
       throw new IllegalArgumentException("Cannot write attribute: too late!");
     Attr att = this.document.createAttribute(name);
     att.setValue(value);
-    this.currentElement.appendChild(att);
+    ((Element) this.currentElement).setAttributeNode(att);
   }
 
   /**
@@ -304,6 +327,18 @@ public final class DOMWriterImpl implements DOMWriter {
     attribute(name, Long.toString(value));
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The sequence is converted to a string for the attribute node.
+   *
+   * @throws DOMException If thrown by method invoked on the underlying DOM document
+   */
+  @Override
+  public void attribute(String name, CharSequence value) throws DOMException {
+    attribute(name, value.toString());
+  }
+
   // Open/close specific elements
   // ----------------------------------------------------------------------------------------------
 
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.esc;
+
+/**
+ * Precomputed tables returning what to do with a character in a given escaping context.
+ *
+ * <p>Each context (text or attribute value, UTF-8 or ASCII) classifies every UTF-16 code
+ * unit into one of four actions with a single lookup, so that the escape loops only need to
+ * test whether the action is {@link #COPY}.
+ *
+ * <p>The four contexts are packed into a single 64K table of bytes using two bits each.
+ *
+ * <p>These tables are shared by the {@link XMLEscape} and {@link XMLEscapeWriter}
+ * implementations.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class EscapeTable {
+
+  /**
+   * The character can be copied verbatim.
+   */
+  static final int COPY = 0;
+
+  /**
+   * The character must be replaced by its entity (see {@link #entity(char)}).
+   */
+  static final int ENTITY = 1;
+
+  /**
+   * The character is not allowed in XML and must be ignored (C0 and C1 control characters).
+   */
+  static final int DROP = 2;
+
+  /**
+   * The character must be replaced by a numeric character reference.
+   *
+   * <p>Surrogates must be combined into a code point when possible.
+   */
+  static final int NUMERIC = 3;
+
+  /**
+   * Mask to extract the action for one context.
+   */
+  private static final int MASK = 0x3;
+
+  /**
+   * Shift for each context in the packed table.
+   */
+  private static final int UTF8_TEXT_SHIFT = 0;
+  private static final int UTF8_ATTRIBUTE_SHIFT = 2;
+  private static final int ASCII_TEXT_SHIFT = 4;
+  private static final int ASCII_ATTRIBUTE_SHIFT = 6;
+
+  /**
+   * The actions for all four contexts, indexed by character.
+   */
+  private static final byte[] ACTIONS = new byte[Character.MAX_VALUE + 1];
+
+  static {
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      ACTIONS[c] = (byte) (classify(c, false, false) << UTF8_TEXT_SHIFT
+                         | classify(c, true, false) << UTF8_ATTRIBUTE_SHIFT
+                         | classify(c, false, true) << ASCII_TEXT_SHIFT
+                         | classify(c, true, true) << ASCII_ATTRIBUTE_SHIFT);
+    }
+  }
+
+  /**
+   * Text in UTF-8.
+   */
+  static final EscapeTable UTF8_TEXT = new EscapeTable(UTF8_TEXT_SHIFT, "&#39;");
+
+  /**
+   * Attribute values in UTF-8.
+   */
+  static final EscapeTable UTF8_ATTRIBUTE = new EscapeTable(UTF8_ATTRIBUTE_SHIFT, "&#39;");
+
+  /**
+   * Text in ASCII.
+   */
+  static final EscapeTable ASCII_TEXT = new EscapeTable(ASCII_TEXT_SHIFT, "&#39;");
+
+  /**
+   * Attribute values in ASCII.
+   */
+  static final EscapeTable ASCII_ATTRIBUTE = new EscapeTable(ASCII_ATTRIBUTE_SHIFT, "&#39;");
+
+  /**
+   * Attribute values in ASCII for {@link XMLEscapeASCII} which has always used the
+   * hexadecimal reference for the apostrophe.
+   */
+  static final EscapeTable ASCII_ATTRIBUTE_HEX = new EscapeTable(ASCII_ATTRIBUTE_SHIFT, "&#x27;");
+
+  /**
+   * The shift of this context in the packed table.
+   */
+  private final int shift;
+
+  /**
+   * The replacement for the apostrophe.
+   */
+  private final String apos;
+
+  private EscapeTable(int shift, String apos) {
+    this.shift = shift;
+    this.apos = apos;
+  }
+
+  /**
+   * Returns the action for the specified character.
+   *
+   * @param c The character
+   *
+   * @return {@link #COPY}, {@link #ENTITY}, {@link #DROP} or {@link #NUMERIC}
+   */
+  int action(char c) {
+    return (ACTIONS[c] >>> this.shift) & MASK;
+  }
+
+  /**
+   * Returns the entity for a character classified as {@link #ENTITY}.
+   *
+   * @param c The character
+   *
+   * @return the corresponding entity
+   */
+  String entity(char c) {
+    switch (c) {
+      case '<': return "&lt;";
+      case '>': return "&gt;";
+      case '&': return "&amp;";
+      case '"': return "&quot;";
+      case '\'': return this.apos;
+      default: throw new IllegalArgumentException("No entity for character #x"+Integer.toHexString(c));
+    }
+  }
+
+  /**
+   * Classifies a character.
+   *
+   * @param c         The character
+   * @param attribute <code>true</code> for attribute values; <code>false</code> for text
+   * @param ascii     <code>true</code> for ASCII; <code>false</code> for UTF-8
+   *
+   * @return The action for the character in that context.
+   */
+  private static int classify(int c, boolean attribute, boolean ascii) {
+    // '<' and '&' must always be escaped
+    if (c == '<' || c == '&') return ENTITY;
+    if (attribute && (c == '"' || c == '\'')) return ENTITY;
+    if (!attribute && c == '>') return ENTITY;
+    // tabs, new lines and line feeds are preserved
+    if (c == '\t' || c == '\n' || c == '\r') return COPY;
+    // control characters (C0 and C1) are ignored
+    if (c < 0x20 || c >= 0x7F && c < 0xA0) return DROP;
+    if (c < 0x7F) return COPY;
+    if (ascii || Character.isSurrogate((char) c)) return NUMERIC;
+    return COPY;
+  }
+
+}
@@ -23,7 +23,7 @@ import org.jspecify.annotations.Nullable;
  * @author Christophe Lauret
  *
  * @since 1.0.0
- * @version 1.0.0
+ * @version 1.2.0
  */
 abstract class XMLEscapeBase implements XMLEscape {
 
@@ -42,7 +42,9 @@ abstract class XMLEscapeBase implements XMLEscape {
   }
 
   /**
-   * Default implementation calling the {@link XMLEscape#toAttributeValue(char[], int, int)}.
+   * Default implementation escaping the string directly without copying it.
+   *
+   * <p>The same string is returned if it does not need to be escaped.
    *
    * @param value The value that needs to be attribute-escaped.
    *
@@ -51,11 +53,13 @@ abstract class XMLEscapeBase implements XMLEscape {
   @Override
   public final @Nullable String toAttributeValue(@Nullable String value) {
     if (value == null || value.isEmpty()) return value;
-    return toAttributeValue(value.toCharArray(), 0, value.length());
+    return toAttributeValue(value, 0, value.length());
   }
 
   /**
-   * Default implementation calling the {@link XMLEscape#toElementText(char[], int, int)}.
+   * Default implementation escaping the string directly without copying it.
+   *
+   * <p>The same string is returned if it does not need to be escaped.
    *
    * @param text The text that needs to be escaped.
    *
@@ -64,7 +68,7 @@ abstract class XMLEscapeBase implements XMLEscape {
   @Override
   public final @Nullable String toElementText(@Nullable String text) {
     if (text == null || text.isEmpty()) return text;
-    return toElementText(text.toCharArray(), 0, text.length());
+    return toElementText(text, 0, text.length());
   }
 
   @Override
@@ -72,4 +76,130 @@ abstract class XMLEscapeBase implements XMLEscape {
     return this.encoding;
   }
 
+  /**
+   * Returns a well-formed attribute value from a range of the specified character sequence.
+   *
+   * <p>Implementations must only allocate a new string if some characters need escaping.
+   *
+   * @param value The value that needs to be attribute-escaped.
+   * @param off   The start (offset) of the characters.
+   * @param len   The length of characters to escape.
+   *
+   * @return A well-formed value for the attribute.
+   */
+  abstract String toAttributeValue(CharSequence value, int off, int len);
+
+  /**
+   * Returns a well-formed text value from a range of the specified character sequence.
+   *
+   * <p>Implementations must only allocate a new string if some characters need escaping.
+   *
+   * @param text The text that needs to be escaped.
+   * @param off  The start (offset) of the characters.
+   * @param len  The length of characters to escape.
+   *
+   * @return A well-formed value for the text node.
+   */
+  abstract String toElementText(CharSequence text, int off, int len);
+
+  /**
+   * Returns a range of the specified character sequence escaped according to the specified table.
+   *
+   * <p>A new string is only allocated if some characters need escaping.
+   *
+   * @param s     The character sequence to escape.
+   * @param off   The start (offset) of the characters.
+   * @param len   The length of characters to escape.
+   * @param table The classification table for the escaping context.
+   *
+   * @return The escaped string.
+   */
+  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
+  static String escape(CharSequence s, int off, int len, EscapeTable table) {
+    final int end = off + len;
+    // only allocated if some characters need escaping
+    StringBuilder out = null;
+    // start of the run of characters which can be copied verbatim
+    int start = off;
+    int action;
+    for (int i = off; i < end; i++) {
+      char c = s.charAt(i);
+      action = table.action(c);
+      if (action == EscapeTable.COPY) continue;
+      if (out == null) {
+        out = new StringBuilder(len + len / 10);
+      }
+      out.append(s, start, i);
+      if (action == EscapeTable.ENTITY) {
+        out.append(table.entity(c));
+      } else if (action == EscapeTable.NUMERIC) {
+        int codePoint = codePointAt(s, i, end);
+        i += Character.charCount(codePoint) - 1;
+        out.append("&#x").append(Integer.toHexString(codePoint)).append(';');
+      }
+      // control characters (C0 and C1) are ignored
+      start = i + 1;
+    }
+    if (out == null) return s.subSequence(off, end).toString();
+    return out.append(s, start, end).toString();
+  }
+
+  /**
+   * Returns a range of the specified character array escaped according to the specified table.
+   *
+   * @param ch    The characters to escape.
+   * @param off   The start (offset) of the characters.
+   * @param len   The length of characters to escape.
+   * @param table The classification table for the escaping context.
+   *
+   * @return The escaped string.
+   */
+  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
+  static String escape(char[] ch, int off, int len, EscapeTable table) {
+    final int end = off + len;
+    // only allocated if some characters need escaping
+    StringBuilder out = null;
+    // start of the run of characters which can be copied verbatim
+    int start = off;
+    int action;
+    for (int i = off; i < end; i++) {
+      char c = ch[i];
+      action = table.action(c);
+      if (action == EscapeTable.COPY) continue;
+      if (out == null) {
+        out = new StringBuilder(len + len / 10);
+      }
+      out.append(ch, start, i - start);
+      if (action == EscapeTable.ENTITY) {
+        out.append(table.entity(c));
+      } else if (action == EscapeTable.NUMERIC) {
+        int codePoint = Character.codePointAt(ch, i, end);
+        i += Character.charCount(codePoint) - 1;
+        out.append("&#x").append(Integer.toHexString(codePoint)).append(';');
+      }
+      // control characters (C0 and C1) are ignored
+      start = i + 1;
+    }
+    if (out == null) return new String(ch, off, len);
+    return out.append(ch, start, end - start).toString();
+  }
+
+  /**
+   * Returns the code point at the given index without reading past the specified limit.
+   *
+   * @param s     The character sequence.
+   * @param index The index of the character.
+   * @param limit The index after the last character which can be read.
+   *
+   * @return The code point at the given index.
+   */
+  static int codePointAt(CharSequence s, int index, int limit) {
+    char c = s.charAt(index);
+    if (Character.isHighSurrogate(c) && index + 1 < limit) {
+      char low = s.charAt(index + 1);
+      if (Character.isLowSurrogate(low)) return Character.toCodePoint(c, low);
+    }
+    return c;
+  }
+
 }
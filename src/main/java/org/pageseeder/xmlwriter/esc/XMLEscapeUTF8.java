@@ -29,7 +29,7 @@ package org.pageseeder.xmlwriter.esc;
  * @author Philip Rutherford
  *
  * @since 1.0.0
- * @version 1.1.1
+ * @version 1.2.0
  */
 public final class XMLEscapeUTF8 extends XMLEscapeBase implements XMLEscape {
 
@@ -51,73 +51,23 @@ public final class XMLEscapeUTF8 extends XMLEscapeBase implements XMLEscape {
   }
 
   @Override
-  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
   public String toAttributeValue(char[] ch, int off, int len) {
-    StringBuilder out = new StringBuilder();
-    char c;
-    for (int i = off; i < off+len; i++) {
-      c = ch[i];
-      // '<' always replace with '&lt;'
-      if      (c == '<') {
-        out.append("&lt;");
-      } else if (c == '&') {
-        out.append("&amp;");
-      } else if (c == '"') {
-        out.append("&quot;");
-      } else if (c == '\'') {
-        out.append("&#39;");
-      } else if (c == '\n' || c == '\r' || c == '\t') {
-        out.append(c);
-      } else if (c < 0x20 || c >= 0x7F && c < 0xA0) {
-        doNothing();
-      } else if (c >= 0xD800 && c <= 0xDFFF) {
-        int codePoint = Character.codePointAt(ch, i, off+len);
-        i += Character.charCount(codePoint) - 1;
-        out.append("&#x").append(Integer.toHexString(codePoint)).append(";");
-      } else {
-        out.append(c);
-      }
-    }
-    return out.toString();
+    return escape(ch, off, len, EscapeTable.UTF8_ATTRIBUTE);
+  }
+
+  @Override
+  String toAttributeValue(CharSequence value, int off, int len) {
+    return escape(value, off, len, EscapeTable.UTF8_ATTRIBUTE);
   }
 
   @Override
-  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
   public String toElementText(char[] ch, int off, int len) {
-    StringBuilder out = new StringBuilder(len + len / 10);
-    char c;
-    for (int i = off; i < off+len; i++) {
-      c = ch[i];
-      // '<' always replace with '&lt;'
-      if (c == '<') {
-        out.append("&lt;");
-      } else if (c == '&') {
-        out.append("&amp;");
-      } else if (c == '>') {
-        out.append("&gt;");
-      } else if (c == '\n' || c == '\r' || c == '\t') {
-        out.append(c);
-      } else if (c < 0x20 || c >= 0x7F && c < 0xA0) {
-        doNothing();
-      } else if (c >= 0xD800 && c <= 0xDFFF) {
-        int codePoint = Character.codePointAt(ch, i, off+len);
-        i += Character.charCount(codePoint) - 1;
-        out.append("&#x").append(Integer.toHexString(codePoint)).append(";");
-      } else {
-        out.append(c);
-      }
-    }
-    return out.toString();
+    return escape(ch, off, len, EscapeTable.UTF8_TEXT);
   }
 
-  /**
-   * Does nothing.
-   *
-   * <p>This method exists so that we can explicitly say that we should do nothing
-   * in certain conditions.
-   */
-  private static void doNothing() {
-    // Ignored on purpose
+  @Override
+  String toElementText(CharSequence text, int off, int len) {
+    return escape(text, off, len, EscapeTable.UTF8_TEXT);
   }
 
 }
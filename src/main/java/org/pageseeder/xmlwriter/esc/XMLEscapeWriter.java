@@ -83,6 +83,24 @@ public interface XMLEscapeWriter {
    */
   void writeAttValue(String value) throws IOException;
 
+  /**
+   * Writes a well-formed attribute value from any sequence of characters.
+   *
+   * <p>Method provided for convenience, using the same specifications as
+   * {@link #writeAttValue(char[], int, int)}.
+   *
+   * <p>By default, the sequence is converted to a string first.
+   *
+   * @param value The value that needs to be attribute-escaped.
+   *
+   * @throws IOException If thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeAttValue(CharSequence value) throws IOException {
+    writeAttValue(value.toString());
+  }
+
   /**
    * Writes a well-formed XML literal text value.
    *
@@ -126,6 +144,27 @@ public interface XMLEscapeWriter {
    */
   void writeText(@Nullable String text) throws IOException;
 
+  /**
+   * Writes the text from any sequence of characters so that the text value for the element
+   * remains well-formed.
+   *
+   * <p>Method provided for convenience, using the same specifications as
+   * {@link #writeText(char[], int, int)}.
+   *
+   * <p>By default, the sequence is converted to a string first.
+   *
+   * @param text The text that needs to be text-escaped.
+   *
+   * @throws IOException If thrown by the underlying writer.
+   *
+   * @since 1.2.0
+   */
+  default void writeText(@Nullable CharSequence text) throws IOException {
+    if (text != null) {
+      writeText(text.toString());
+    }
+  }
+
   /**
    * Writes the character so that the text value for the element remains
    * well-formed.
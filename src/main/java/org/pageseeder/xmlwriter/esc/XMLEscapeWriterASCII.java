@@ -23,11 +23,13 @@ import java.io.Writer;
  *
  * <p>Any Unicode code point greater than (#x7E) will be encoded using the numeric character entity.
  *
+ * <p>Runs of characters which do not need to be escaped are written to the wrapped writer in bulk.
+ *
  * @author Christophe Lauret
  * @author Philip Rutherford
  *
  * @since 1.0.0
- * @version 1.1.1
+ * @version 1.2.0
  */
 public final class XMLEscapeWriterASCII extends XMLEscapeWriterBase implements XMLEscapeWriter {
 
@@ -48,76 +50,13 @@ public final class XMLEscapeWriterASCII extends XMLEscapeWriterBase implements X
   }
 
   @Override
-  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
   public void writeAttValue(char[] ch, int off, int len) throws IOException {
-    char c;
-    for (int i = off; i < off+len; i++) {
-      c = ch[i];
-      // '<' always replace with '&lt;'
-      if (c == '<') {
-        super.w.write("&lt;");
-      } else if (c == '&') {
-        super.w.write("&amp;");
-      } else if (c == '"') {
-        super.w.write("&quot;");
-      } else if (c == '\'') {
-        super.w.write("&#39;");
-      } else if (c == '\n' || c == '\r' || c == '\t') {
-        super.w.write(c);
-      } else if (c < 0x20 || c >= 0x7F && c < 0xA0) {
-        // Ignore control characters
-        doNothing();
-      } else if (c >= 0xD800 && c <= 0xDFFF) {
-        int codePoint = Character.codePointAt(ch, i, off+len);
-        i += Character.charCount(codePoint) - 1;
-        super.w.write("&#x");
-        super.w.write(Integer.toHexString(codePoint));
-        super.w.write(';');
-      }
-      // characters outside the ASCII range
-      else if (c > 0x9F) {
-        super.w.write("&#x");
-        super.w.write(Integer.toHexString(c));
-        super.w.write(';');
-      } else {
-        super.w.write(c);
-      }
-    }
+    write(ch, off, len, EscapeTable.ASCII_ATTRIBUTE);
   }
 
   @Override
-  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
   public void writeText(char[] ch, int off, int len) throws IOException {
-    char c;
-    for (int i = off; i < off+len; i++) {
-      c = ch[i];
-      if (c == '<') {
-        super.w.write("&lt;");
-      } else if (c == '>') {
-        super.w.write("&gt;");
-      } else if (c == '&') {
-        super.w.write("&amp;");
-      } else if (c == '\n' || c == '\r' || c == '\t') {
-        super.w.write(c);
-      } else if (c < 0x20 || c >= 0x7F && c < 0xA0) {
-        // Ignore control characters
-        doNothing();
-      } else if (c >= 0xD800 && c <= 0xDFFF) {
-        int codePoint = Character.codePointAt(ch, i, off+len);
-        i += Character.charCount(codePoint) - 1;
-        super.w.write("&#x");
-        super.w.write(Integer.toHexString(codePoint));
-        super.w.write(';');
-      }
-      // characters outside the ASCII range
-      else if (c > 0x9F) {
-        super.w.write("&#x");
-        super.w.write(Integer.toHexString(c));
-        super.w.write(';');
-      } else {
-        super.w.write(c);
-      }
-    }
+    write(ch, off, len, EscapeTable.ASCII_TEXT);
   }
 
   /**
@@ -136,36 +75,16 @@ public final class XMLEscapeWriterASCII extends XMLEscapeWriterBase implements X
    */
   @Override
   public void writeText(char c) throws IOException {
-    // '<' always replace with '&lt;'
-    if (c == '<') {
-      super.w.write("&lt;");
-    } else if (c == '>') {
-      super.w.write("&gt;");
-    } else if (c == '&') {
-      super.w.write("&amp;");
-    } else if (c == '\n' || c == '\r' || c == '\t') {
-      super.w.write(c);
-    } else if (c < 0x20 || c >= 0x7F && c < 0xA0) {
-      // Ignore control characters
-      doNothing();
-    } else if (c >= 0xD800 && c <= 0xDFFF) throw new IOException("Unable to handle character #x"+Integer.toHexString(c));
-    else if (c > 0xBF) {
-      super.w.write("&#x");
-      super.w.write(Integer.toHexString(c));
-      super.w.write(';');
-    } else {
+    final EscapeTable table = EscapeTable.ASCII_TEXT;
+    int action = table.action(c);
+    if (action == EscapeTable.COPY) {
       super.w.write(c);
+    } else if (action == EscapeTable.ENTITY) {
+      super.w.write(table.entity(c));
+    } else if (action == EscapeTable.NUMERIC) {
+      if (Character.isSurrogate(c)) throw new IOException("Unable to handle character #x"+Integer.toHexString(c));
+      writeNumeric(c);
     }
   }
 
-  /**
-   * Does nothing.
-   *
-   * <p>This method exists so that we can explicitly say that we should do nothing
-   * in certain conditions.
-   */
-  private static void doNothing() {
-    // Does nothing on purpose
-  }
-
 }
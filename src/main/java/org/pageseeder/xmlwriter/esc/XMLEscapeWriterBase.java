@@ -19,6 +19,7 @@ import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.Objects;
 
 /**
@@ -28,10 +29,15 @@ import java.util.Objects;
  * @author Philip Rutherford
  *
  * @since 1.0.0
- * @version 1.0.0
+ * @version 1.2.0
  */
 abstract class XMLEscapeWriterBase implements XMLEscapeWriter {
 
+  /**
+   * The size of the scratch buffer used to escape strings.
+   */
+  private static final int SCRATCH_SIZE = 1024;
+
   /**
    * The encoding for the implementation.
    */
@@ -42,6 +48,11 @@ abstract class XMLEscapeWriterBase implements XMLEscapeWriter {
    */
   final Writer w;
 
+  /**
+   * A buffer reused to escape strings in chunks instead of copying them entirely.
+   */
+  private final char[] scratch = new char[SCRATCH_SIZE];
+
   /**
    * Creates a new XML escape for writers.
    *
@@ -58,6 +69,9 @@ abstract class XMLEscapeWriterBase implements XMLEscapeWriter {
   /**
    * Default implementation calling the {@link XMLEscapeWriter#writeAttValue(char[], int, int)}.
    *
+   * <p>The value is copied in chunks into a buffer reused by this instance, so no new
+   * character array is allocated.
+   *
    * @param value The value that needs to be attribute-escaped.
    *
    * @throws IOException If thrown by the underlying writer.
@@ -65,12 +79,53 @@ abstract class XMLEscapeWriterBase implements XMLEscapeWriter {
   @Override
   public final void writeAttValue(@Nullable String value) throws IOException {
     if (value == null || value.isEmpty()) return;
-    writeAttValue(value.toCharArray(), 0, value.length());
+    final char[] buf = this.scratch;
+    final int len = value.length();
+    int off = 0;
+    while (off < len) {
+      int n = chunkLength(value, off, len);
+      value.getChars(off, off + n, buf, 0);
+      writeAttValue(buf, 0, n);
+      off += n;
+    }
+  }
+
+  /**
+   * Escapes the attribute value straight from the sequence of characters.
+   *
+   * <p>The characters of a <code>CharBuffer</code> backed by an array are escaped in place,
+   * other sequences are copied in chunks into the buffer reused by this instance.
+   *
+   * @param value The value that needs to be attribute-escaped.
+   *
+   * @throws IOException If thrown by the underlying writer.
+   */
+  @Override
+  public final void writeAttValue(CharSequence value) throws IOException {
+    if (value instanceof String) {
+      writeAttValue((String) value);
+    } else if (value instanceof CharBuffer && ((CharBuffer) value).hasArray()) {
+      CharBuffer cb = (CharBuffer) value;
+      writeAttValue(cb.array(), cb.arrayOffset() + cb.position(), cb.remaining());
+    } else {
+      final char[] buf = this.scratch;
+      final int len = value.length();
+      int off = 0;
+      while (off < len) {
+        int n = chunkLength(value, off, len);
+        getChars(value, off, off + n, buf);
+        writeAttValue(buf, 0, n);
+        off += n;
+      }
+    }
   }
 
   /**
    * Default implementation calling the {@link XMLEscapeWriter#writeText(char[], int, int)}.
    *
+   * <p>The text is copied in chunks into a buffer reused by this instance, so no new
+   * character array is allocated.
+   *
    * @param text The text that needs to be text-escaped.
    *
    * @throws IOException If thrown by the underlying writer.
@@ -78,7 +133,46 @@ abstract class XMLEscapeWriterBase implements XMLEscapeWriter {
   @Override
   public final void writeText(@Nullable String text) throws IOException {
     if (text == null || text.isEmpty()) return;
-    writeText(text.toCharArray(), 0, text.length());
+    final char[] buf = this.scratch;
+    final int len = text.length();
+    int off = 0;
+    while (off < len) {
+      int n = chunkLength(text, off, len);
+      text.getChars(off, off + n, buf, 0);
+      writeText(buf, 0, n);
+      off += n;
+    }
+  }
+
+  /**
+   * Escapes the text straight from the sequence of characters.
+   *
+   * <p>The characters of a <code>CharBuffer</code> backed by an array are escaped in place,
+   * other sequences are copied in chunks into the buffer reused by this instance.
+   *
+   * @param text The text that needs to be text-escaped.
+   *
+   * @throws IOException If thrown by the underlying writer.
+   */
+  @Override
+  public final void writeText(@Nullable CharSequence text) throws IOException {
+    if (text == null) return;
+    if (text instanceof String) {
+      writeText((String) text);
+    } else if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+      CharBuffer cb = (CharBuffer) text;
+      writeText(cb.array(), cb.arrayOffset() + cb.position(), cb.remaining());
+    } else {
+      final char[] buf = this.scratch;
+      final int len = text.length();
+      int off = 0;
+      while (off < len) {
+        int n = chunkLength(text, off, len);
+        getChars(text, off, off + n, buf);
+        writeText(buf, 0, n);
+        off += n;
+      }
+    }
   }
 
   /**
@@ -91,4 +185,96 @@ abstract class XMLEscapeWriterBase implements XMLEscapeWriter {
     return this.encoding;
   }
 
+  /**
+   * Writes the specified characters escaped according to the specified table.
+   *
+   * <p>Runs of characters which do not need to be escaped are written in bulk.
+   *
+   * @param ch    The characters to escape.
+   * @param off   The start (offset) of the characters.
+   * @param len   The length of characters to escape.
+   * @param table The classification table for the escaping context.
+   *
+   * @throws IOException If thrown by the underlying writer.
+   */
+  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
+  final void write(char[] ch, int off, int len, EscapeTable table) throws IOException {
+    final int end = off + len;
+    // start of the run of characters which can be copied verbatim
+    int start = off;
+    int action;
+    for (int i = off; i < end; i++) {
+      action = table.action(ch[i]);
+      if (action == EscapeTable.COPY) continue;
+      // copy the run in bulk before the character that requires escaping
+      if (i > start) {
+        this.w.write(ch, start, i - start);
+      }
+      if (action == EscapeTable.ENTITY) {
+        this.w.write(table.entity(ch[i]));
+      } else if (action == EscapeTable.NUMERIC) {
+        int codePoint = Character.codePointAt(ch, i, end);
+        i += Character.charCount(codePoint) - 1;
+        writeNumeric(codePoint);
+      }
+      // control characters (C0 and C1) are ignored
+      start = i + 1;
+    }
+    if (end > start) {
+      this.w.write(ch, start, end - start);
+    }
+  }
+
+  /**
+   * Writes the numeric character reference for the specified code point.
+   *
+   * @param codePoint The code point
+   *
+   * @throws IOException If thrown by the underlying writer.
+   */
+  final void writeNumeric(int codePoint) throws IOException {
+    this.w.write("&#x");
+    this.w.write(Integer.toHexString(codePoint));
+    this.w.write(';');
+  }
+
+  /**
+   * Returns the number of characters of the next chunk to copy into the scratch buffer.
+   *
+   * <p>A chunk never ends with a high surrogate so that surrogate pairs are not split.
+   *
+   * @param s   The characters being escaped.
+   * @param off The offset of the chunk.
+   * @param len The length of the characters.
+   *
+   * @return The length of the chunk.
+   */
+  private int chunkLength(CharSequence s, int off, int len) {
+    int n = Math.min(len - off, this.scratch.length);
+    if (off + n < len && Character.isHighSurrogate(s.charAt(off + n - 1))) {
+      n--;
+    }
+    return n;
+  }
+
+  /**
+   * Copies the specified characters of a sequence to the start of a buffer.
+   *
+   * @param s     The sequence of characters.
+   * @param start The index of the first character to copy.
+   * @param end   The index after the last character to copy.
+   * @param dst   The buffer to copy the characters to.
+   */
+  private static void getChars(CharSequence s, int start, int end, char[] dst) {
+    if (s instanceof StringBuilder) {
+      ((StringBuilder) s).getChars(start, end, dst, 0);
+    } else if (s instanceof StringBuffer) {
+      ((StringBuffer) s).getChars(start, end, dst, 0);
+    } else {
+      for (int i = start; i < end; i++) {
+        dst[i - start] = s.charAt(i);
+      }
+    }
+  }
+
 }
@@ -28,11 +28,14 @@ import java.io.Writer;
  * compatibility with storage mechanisms that do not support them, for example,
  * some databases.
  *
+ * <p>Runs of characters which do not need to be escaped are written to the
+ * wrapped writer in bulk.
+ *
  * @author Christophe Lauret
  * @author Philip Rutherford
  *
  * @since 1.0.0
- * @version 1.0.0
+ * @version 1.2.0
  */
 public final class XMLEscapeWriterUTF8 extends XMLEscapeWriterBase implements XMLEscapeWriter {
 
@@ -55,92 +58,25 @@ public final class XMLEscapeWriterUTF8 extends XMLEscapeWriterBase implements XM
   }
 
   @Override
-  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
   public void writeAttValue(char[] ch, int off, int len) throws IOException {
-    char c;
-    for (int i = off; i < off+len; i++) {
-      c = ch[i];
-      // '<' always replace with '&lt;'
-      if (c == '<') {
-        super.w.write("&lt;");
-      } else if (c == '&') {
-        super.w.write("&amp;");
-      } else if (c == '"') {
-        super.w.write("&quot;");
-      } else if (c == '\'') {
-        super.w.write("&#39;");
-      } else if (c == '\n' || c == '\r' || c == '\t') {
-        super.w.write(c);
-      } else if (c < 0x20 || c >= 0x7F && c < 0xA0) {
-        doNothing();
-      } else if (c >= 0xD800 && c <= 0xDFFF) {
-        int codePoint = Character.codePointAt(ch, i, off+len);
-        i += Character.charCount(codePoint) - 1;
-        super.w.write("&#x");
-        super.w.write(Integer.toHexString(codePoint));
-        super.w.write(";");
-      } else {
-        super.w.write(c);
-      }
-    }
+    write(ch, off, len, EscapeTable.UTF8_ATTRIBUTE);
   }
 
   @Override
-  @SuppressWarnings("java:S127") // We need to adjust loop counter when dealing with surrogate pairs
   public void writeText(char[] ch, int off, int len) throws IOException {
-    // process the rest
-    char c;
-    for (int i = off; i < off+len; i++) {
-      c = ch[i];
-      // '<' always replace with '&lt;'
-      if (c == '<') {
-        super.w.write("&lt;");
-      } else if (c == '>') {
-        super.w.write("&gt;");
-      } else if (c == '&') {
-        super.w.write("&amp;");
-      } else if (c == '\n' || c == '\r' || c == '\t') {
-        super.w.write(c);
-      } else if (c < 0x20 || c >= 0x7F && c < 0xA0) {
-        doNothing();
-      } else if (c >= 0xD800 && c <= 0xDFFF) {
-        int codePoint = Character.codePointAt(ch, i, off+len);
-        i += Character.charCount(codePoint) - 1;
-        super.w.write("&#x");
-        super.w.write(Integer.toHexString(codePoint));
-        super.w.write(";");
-      } else {
-        super.w.write(c);
-      }
-    }
+    write(ch, off, len, EscapeTable.UTF8_TEXT);
   }
 
   @Override
   public void writeText(char c) throws IOException {
-    // '<' must always be escaped
-    if (c == '<') {
-      super.w.write("&lt;");
-    } else if (c == '>') {
-      super.w.write("&gt;");
-    } else if (c == '&') {
-      super.w.write("&amp;");
-    } else if (c == '\n' || c == '\r' || c == '\t') {
-      super.w.write(c);
-    } else if (c < 0x20 || c >= 0x7F && c < 0xA0) {
-      doNothing();
-    } else {
+    final EscapeTable table = EscapeTable.UTF8_TEXT;
+    int action = table.action(c);
+    if (action == EscapeTable.ENTITY) {
+      super.w.write(table.entity(c));
+    } else if (action != EscapeTable.DROP) {
+      // a single surrogate cannot be combined into a code point: written as is
       super.w.write(c);
     }
   }
 
-  /**
-   * Does nothing.
-   *
-   * <p>This method exists so that we can explicitly say that we should do nothing
-   * in certain conditions.
-   */
-  private static void doNothing() {
-    // Ignore on purpose
-  }
-
 }
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A double-buffered output stream writing to the wrapped stream on another thread.
+ *
+ * <p>The calling thread fills one buffer while the previous buffer is written to the wrapped
+ * stream by an executor, so that generating a document overlaps with disk or network I/O.
+ * At most one buffer is pending: when the current buffer is full, the calling thread waits
+ * for the previous one to be written before swapping them.
+ *
+ * <p>Pick this stream when writes to the destination are slow or unpredictable, such as a
+ * network connection or a remote file system, so that the thread generating the XML is not
+ * held up by each write, for example:
+ * <pre>
+ *   XMLWriter xml = new XMLWriterImpl(new AsyncOutputStream(new FileOutputStream(file)));
+ * </pre>
+ *
+ * <p>{@link #flush()} and {@link #close()} block until the pending bytes have been written.
+ * Any exception thrown by the wrapped stream is reported to the calling thread by the first
+ * call to <code>write</code> or <code>flush</code> after the failed write has completed, and
+ * again by <code>close</code> once the wrapped stream is closed.
+ *
+ * <p>By default, the bytes are written by a shared pool of daemon threads; on recent JVMs,
+ * an executor creating virtual threads can be supplied instead.
+ *
+ * <p>This class is not synchronised: only the thread generating the data should use it.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public final class AsyncOutputStream extends OutputStream {
+
+  /**
+   * The default size of each buffer.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The executor used by default: cached daemon threads.
+   */
+  private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+  /**
+   * The wrapped stream.
+   */
+  private final OutputStream out;
+
+  /**
+   * Runs the writes to the wrapped stream.
+   */
+  private final Executor executor;
+
+  /**
+   * The buffer being filled by the calling thread.
+   */
+  private byte[] buf;
+
+  /**
+   * The buffer being written (or last written) to the wrapped stream.
+   */
+  private byte[] spare;
+
+  /**
+   * The position of the next byte to write in the buffer.
+   */
+  private int pos = 0;
+
+  /**
+   * The write to the wrapped stream in progress, if any.
+   */
+  private @Nullable FutureTask<Void> pending = null;
+
+  /**
+   * An error reported by the wrapped stream.
+   */
+  private @Nullable IOException error = null;
+
+  /**
+   * Whether this stream has been closed.
+   */
+  private boolean closed = false;
+
+  /**
+   * Creates a new asynchronous stream using the default buffer size and executor.
+   *
+   * @param out The stream to write to.
+   *
+   * @throws NullPointerException If the stream is <code>null</code>.
+   */
+  public AsyncOutputStream(OutputStream out) {
+    this(out, DEFAULT_BUFFER_SIZE, DEFAULT_EXECUTOR);
+  }
+
+  /**
+   * Creates a new asynchronous stream.
+   *
+   * @param out        The stream to write to.
+   * @param bufferSize The size of each of the two buffers.
+   * @param executor   The executor writing the buffers to the stream.
+   *
+   * @throws NullPointerException If the stream or executor is <code>null</code>.
+   * @throws IllegalArgumentException If the buffer size is not strictly positive.
+   */
+  public AsyncOutputStream(OutputStream out, int bufferSize, Executor executor) {
+    this.out = Objects.requireNonNull(out, "Cannot write to a null stream");
+    this.executor = Objects.requireNonNull(executor, "The executor is required");
+    if (bufferSize <= 0)
+      throw new IllegalArgumentException("The buffer size must be strictly positive");
+    this.buf = new byte[bufferSize];
+    this.spare = new byte[bufferSize];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    if (this.pos == this.buf.length) {
+      handOff();
+    }
+    this.buf[this.pos++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    int o = off;
+    int remaining = len;
+    while (remaining > 0) {
+      if (this.pos == this.buf.length) {
+        handOff();
+      }
+      int n = Math.min(remaining, this.buf.length - this.pos);
+      System.arraycopy(b, o, this.buf, this.pos, n);
+      this.pos += n;
+      o += n;
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Writes the buffered bytes and flushes the wrapped stream.
+   *
+   * <p>This method blocks until all the bytes have been written.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (this.pos > 0) {
+      handOff();
+    }
+    await();
+    this.out.flush();
+  }
+
+  /**
+   * Writes the buffered bytes and closes the wrapped stream.
+   *
+   * <p>This method blocks until all the bytes have been written. If the calling thread is
+   * interrupted while a write is still in progress, the wrapped stream is left open and this
+   * method can be invoked again.
+   *
+   * <p>If a write to the wrapped stream failed, the wrapped stream is closed and the failure
+   * is thrown.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   * @throws InterruptedIOException If interrupted while waiting for the pending write.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) return;
+    IOException failure = this.error;
+    if (failure == null) {
+      try {
+        if (this.pos > 0) {
+          handOff();
+        }
+        await();
+      } catch (IOException ex) {
+        failure = ex;
+      }
+    }
+    // Do not close the wrapped stream under a write still in progress
+    if (this.pending == null) {
+      this.closed = true;
+      try {
+        this.out.close();
+      } catch (IOException ex) {
+        if (failure == null) {
+          failure = ex;
+        } else {
+          failure.addSuppressed(ex);
+        }
+      }
+    }
+    if (failure != null) throw failure;
+  }
+
+  /**
+   * Hands the current buffer to the executor and swaps buffers.
+   *
+   * <p>Waits for the previous buffer to be written first.
+   *
+   * @throws IOException If the previous write failed or the executor rejected the write.
+   */
+  private void handOff() throws IOException {
+    await();
+    final byte[] full = this.buf;
+    final int len = this.pos;
+    FutureTask<Void> task = new FutureTask<>(() -> {
+      this.out.write(full, 0, len);
+      return null;
+    });
+    try {
+      this.executor.execute(task);
+    } catch (RejectedExecutionException ex) {
+      this.error = new IOException("Unable to write the bytes asynchronously", ex);
+      throw this.error;
+    }
+    this.pending = task;
+    this.buf = this.spare;
+    this.spare = full;
+    this.pos = 0;
+  }
+
+  /**
+   * Waits for the pending write to complete.
+   *
+   * @throws IOException If the pending write failed or the thread was interrupted.
+   */
+  private void await() throws IOException {
+    FutureTask<Void> task = this.pending;
+    if (task == null) return;
+    try {
+      task.get();
+      this.pending = null;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for pending bytes to be written");
+    } catch (ExecutionException ex) {
+      this.pending = null;
+      Throwable cause = ex.getCause();
+      this.error = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+      throw this.error;
+    }
+  }
+
+  /**
+   * @throws IOException If this stream is closed or a previous write failed.
+   */
+  private void ensureOpen() throws IOException {
+    if (this.error != null) throw this.error;
+    if (this.closed) throw new IOException("Stream closed");
+    // Report the failure of a completed write without waiting for the next hand-off
+    FutureTask<Void> task = this.pending;
+    if (task != null && task.isDone()) {
+      await();
+    }
+  }
+
+  /**
+   * Creates the daemon threads used by default.
+   */
+  private static final class DaemonThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "xmlwriter-async-" + this.count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of direct byte buffers of the same capacity.
+ *
+ * <p>Direct buffers are expensive to allocate and are only released when garbage collected,
+ * so the streams in this package borrow them from this pool and give them back when closed.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class ByteBufferPool {
+
+  /**
+   * The pool shared by the streams in this package (up to 64 buffers of 64KB).
+   */
+  static final ByteBufferPool SHARED = new ByteBufferPool(1 << 16, 64);
+
+  /**
+   * The capacity of the buffers.
+   */
+  private final int bufferSize;
+
+  /**
+   * The buffers available.
+   */
+  private final BlockingQueue<ByteBuffer> available;
+
+  /**
+   * Creates a new pool.
+   *
+   * @param bufferSize The capacity of the buffers.
+   * @param maxPooled  The maximum number of buffers kept in the pool.
+   */
+  ByteBufferPool(int bufferSize, int maxPooled) {
+    this.bufferSize = bufferSize;
+    this.available = new ArrayBlockingQueue<>(maxPooled);
+  }
+
+  /**
+   * Returns a cleared buffer from the pool or allocates a new one if the pool is empty.
+   *
+   * @return a direct byte buffer ready to be written to.
+   */
+  ByteBuffer acquire() {
+    ByteBuffer buffer = this.available.poll();
+    return buffer != null ? buffer : ByteBuffer.allocateDirect(this.bufferSize);
+  }
+
+  /**
+   * Gives a buffer back to the pool.
+   *
+   * <p>The buffer is discarded if the pool is full.
+   *
+   * @param buffer A buffer acquired from this pool.
+   */
+  void release(ByteBuffer buffer) {
+    buffer.clear();
+    this.available.offer(buffer);
+  }
+
+}
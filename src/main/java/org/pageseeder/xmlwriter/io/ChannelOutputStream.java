@@ -0,0 +1,270 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * An output stream filling a chain of pooled direct byte buffers and writing them to a
+ * channel.
+ *
+ * <p>The bytes are copied once into direct buffers borrowed from a shared pool. When all
+ * the buffers of the chain are full, or when the stream is flushed, they are written to the
+ * channel in a single gathering write if the channel is a {@link GatheringByteChannel}
+ * (for example, a file, socket or pipe channel), or one after the other otherwise.
+ *
+ * <p>Use this stream when the destination is already a file, socket or pipe channel: the XML
+ * is copied once into native memory and reaches the channel in as few system calls as
+ * possible, for example:
+ * <pre>
+ *   XMLWriter xml = new XMLWriterImpl(new ChannelOutputStream(channel));
+ * </pre>
+ *
+ * <p>The channel must be in blocking mode.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public final class ChannelOutputStream extends OutputStream {
+
+  /**
+   * The default number of buffers in the chain.
+   */
+  public static final int DEFAULT_BUFFER_COUNT = 4;
+
+  /**
+   * Where the buffers come from.
+   */
+  private final ByteBufferPool pool = ByteBufferPool.SHARED;
+
+  /**
+   * The channel to write to.
+   */
+  private final WritableByteChannel channel;
+
+  /**
+   * The chain of buffers (buffers are acquired as they are needed).
+   */
+  private final ByteBuffer[] buffers;
+
+  /**
+   * The index of the buffer currently being filled.
+   */
+  private int current = 0;
+
+  /**
+   * Whether this stream has been closed.
+   */
+  private boolean closed = false;
+
+  /**
+   * Creates a new stream writing to the specified channel using the default number of buffers.
+   *
+   * @param channel The channel to write to.
+   *
+   * @throws NullPointerException If the channel is <code>null</code>.
+   * @throws IllegalBlockingModeException If the channel is in non-blocking mode.
+   */
+  public ChannelOutputStream(WritableByteChannel channel) {
+    this(channel, DEFAULT_BUFFER_COUNT);
+  }
+
+  /**
+   * Creates a new stream writing to the specified channel.
+   *
+   * @param channel     The channel to write to.
+   * @param bufferCount The maximum number of buffers to fill before writing to the channel.
+   *
+   * @throws NullPointerException If the channel is <code>null</code>.
+   * @throws IllegalBlockingModeException If the channel is in non-blocking mode.
+   * @throws IllegalArgumentException If the number of buffers is not strictly positive.
+   */
+  public ChannelOutputStream(WritableByteChannel channel, int bufferCount) {
+    this.channel = Objects.requireNonNull(channel, "Cannot write to a null channel");
+    if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+      throw new IllegalBlockingModeException();
+    if (bufferCount <= 0)
+      throw new IllegalArgumentException("The number of buffers must be strictly positive");
+    this.buffers = new ByteBuffer[bufferCount];
+    this.buffers[0] = this.pool.acquire();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    ByteBuffer buffer = this.buffers[this.current];
+    if (!buffer.hasRemaining()) {
+      buffer = next();
+    }
+    buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    ByteBuffer buffer = this.buffers[this.current];
+    int o = off;
+    int remaining = len;
+    while (remaining > 0) {
+      if (!buffer.hasRemaining()) {
+        buffer = next();
+      }
+      int n = Math.min(remaining, buffer.remaining());
+      buffer.put(b, o, n);
+      o += n;
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Writes the buffered bytes to the channel.
+   *
+   * <p>Channels do not have a notion of flushing, so this method does not force the channel
+   * to write its data to the device.
+   *
+   * @throws IOException If thrown by the channel.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    drain();
+  }
+
+  /**
+   * Writes the buffered bytes to the channel, closes the channel and gives the buffers
+   * back to the pool.
+   *
+   * <p>The channel is closed even if the buffered bytes could not be written, in which case
+   * any failure to close the channel is suppressed by the write failure.
+   *
+   * @throws IOException If thrown by the channel.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) return;
+    IOException failure = null;
+    try {
+      drain();
+    } catch (IOException ex) {
+      failure = ex;
+    } finally {
+      this.closed = true;
+      for (int i = 0; i < this.buffers.length; i++) {
+        if (this.buffers[i] != null) {
+          this.pool.release(this.buffers[i]);
+          this.buffers[i] = null;
+        }
+      }
+      try {
+        this.channel.close();
+      } catch (IOException ex) {
+        if (failure == null) {
+          failure = ex;
+        } else {
+          failure.addSuppressed(ex);
+        }
+      }
+    }
+    if (failure != null) throw failure;
+  }
+
+  /**
+   * Returns the channel this stream writes to.
+   *
+   * <p>This stream must be flushed before writing to the channel directly.
+   *
+   * @return the channel this stream writes to.
+   */
+  public WritableByteChannel getChannel() {
+    return this.channel;
+  }
+
+  /**
+   * Returns the next buffer of the chain, writing the chain to the channel if it is full.
+   *
+   * @return The buffer to fill.
+   *
+   * @throws IOException If thrown by the channel.
+   */
+  private ByteBuffer next() throws IOException {
+    if (this.current + 1 == this.buffers.length) {
+      drain();
+    } else {
+      this.current++;
+      if (this.buffers[this.current] == null) {
+        this.buffers[this.current] = this.pool.acquire();
+      }
+    }
+    return this.buffers[this.current];
+  }
+
+  /**
+   * Writes all the bytes in the chain to the channel and clears the buffers.
+   *
+   * <p>The buffers are cleared even if the channel fails, so the bytes which could not be
+   * written are discarded.
+   *
+   * @throws IOException If thrown by the channel.
+   */
+  private void drain() throws IOException {
+    final ByteBuffer[] chain = this.buffers;
+    final int count = this.current + 1;
+    long remaining = 0;
+    for (int i = 0; i < count; i++) {
+      chain[i].flip();
+      remaining += chain[i].remaining();
+    }
+    try {
+      if (count > 1 && this.channel instanceof GatheringByteChannel) {
+        GatheringByteChannel gathering = (GatheringByteChannel) this.channel;
+        while (remaining > 0) {
+          remaining -= gathering.write(chain, 0, count);
+        }
+      } else {
+        for (int i = 0; i < count; i++) {
+          while (chain[i].hasRemaining()) {
+            this.channel.write(chain[i]);
+          }
+        }
+      }
+    } finally {
+      // Back to filling mode, so that the buffers are never flipped twice
+      for (int i = 0; i < count; i++) {
+        chain[i].clear();
+      }
+      this.current = 0;
+    }
+  }
+
+  /**
+   * @throws IOException If this stream is closed.
+   */
+  private void ensureOpen() throws IOException {
+    if (this.closed) throw new IOException("Stream closed");
+  }
+
+}
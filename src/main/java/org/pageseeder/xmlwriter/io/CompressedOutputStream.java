@@ -0,0 +1,306 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream compressing the bytes written to it in the gzip, zlib or raw deflate format.
+ *
+ * <p>Unlike a <code>GZIPOutputStream</code>, small writes are accumulated before they reach
+ * the deflater and deflaters are borrowed from a shared pool instead of being created and
+ * ended for each stream.
+ *
+ * <p>Use this stream to compress documents on the calling thread, typically when many small
+ * or medium documents are compressed concurrently, as for HTTP responses:
+ * <pre>
+ *   XMLWriter xml = new XMLWriterImpl(new CompressedOutputStream(new FileOutputStream(file)));
+ * </pre>
+ *
+ * <p>To produce the compressed XML in memory, use a <code>ByteArrayOutputStream</code> as the
+ * wrapped stream.
+ *
+ * <p>When sync flush is enabled, flushing this stream flushes the deflater as well, creating
+ * a sync point so that all the data written so far can be decompressed by the receiver.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public final class CompressedOutputStream extends OutputStream {
+
+  /**
+   * The compressed data formats.
+   */
+  public enum Format {
+
+    /**
+     * The gzip file format (RFC 1952).
+     */
+    GZIP,
+
+    /**
+     * The zlib format (RFC 1950).
+     */
+    ZLIB,
+
+    /**
+     * Raw deflate data (RFC 1951).
+     */
+    DEFLATE
+
+  }
+
+  /**
+   * The size of the input and output buffers.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Where the deflater comes from.
+   */
+  private final DeflaterPool pool = DeflaterPool.SHARED;
+
+  /**
+   * The wrapped stream.
+   */
+  private final OutputStream out;
+
+  /**
+   * The compression level.
+   */
+  private final int level;
+
+  /**
+   * Whether the deflater produces raw deflate data.
+   */
+  private final boolean nowrap;
+
+  /**
+   * Whether flushing this stream flushes the deflater.
+   */
+  private final boolean syncFlush;
+
+  /**
+   * The checksum of the uncompressed data (gzip only).
+   */
+  private final @Nullable CRC32 crc;
+
+  /**
+   * The deflater (<code>null</code> once returned to the pool).
+   */
+  private @Nullable Deflater deflater;
+
+  /**
+   * Accumulates small writes.
+   */
+  private final byte[] input = new byte[BUFFER_SIZE];
+
+  /**
+   * The number of bytes in the input buffer.
+   */
+  private int inputLength = 0;
+
+  /**
+   * Receives the compressed bytes.
+   */
+  private final byte[] output = new byte[BUFFER_SIZE];
+
+  /**
+   * Whether the compressed data has been finished.
+   */
+  private boolean finished = false;
+
+  /**
+   * Creates a new gzip stream using the default compression level and no sync flush.
+   *
+   * @param out The stream to write the compressed data to.
+   *
+   * @throws IOException If the gzip header could not be written.
+   */
+  public CompressedOutputStream(OutputStream out) throws IOException {
+    this(out, Format.GZIP, Deflater.DEFAULT_COMPRESSION, false);
+  }
+
+  /**
+   * Creates a new compressed stream.
+   *
+   * @param out       The stream to write the compressed data to.
+   * @param format    The format of the compressed data.
+   * @param level     The compression level from 0 to 9, or -1 for the default level.
+   * @param syncFlush Whether flushing this stream should flush the deflater.
+   *
+   * @throws IOException If the gzip header could not be written.
+   * @throws IllegalArgumentException If the compression level is invalid.
+   */
+  public CompressedOutputStream(OutputStream out, Format format, int level, boolean syncFlush) throws IOException {
+    this.out = Objects.requireNonNull(out, "Cannot write to a null stream");
+    this.level = level;
+    this.nowrap = format != Format.ZLIB;
+    this.syncFlush = syncFlush;
+    this.crc = format == Format.GZIP ? new CRC32() : null;
+    Deflater d = this.pool.acquire(level, this.nowrap);
+    if (this.crc != null) {
+      try {
+        GzipFormat.writeHeader(out);
+      } catch (IOException ex) {
+        this.pool.release(d, level, this.nowrap);
+        throw ex;
+      }
+    }
+    this.deflater = d;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    if (this.inputLength == this.input.length) {
+      deflateInput();
+    }
+    this.input[this.inputLength++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    if (len > this.input.length - this.inputLength) {
+      deflateInput();
+      // Large enough to be deflated directly
+      if (len >= this.input.length) {
+        deflate(b, off, len);
+        return;
+      }
+    }
+    System.arraycopy(b, off, this.input, this.inputLength, len);
+    this.inputLength += len;
+  }
+
+  /**
+   * Flushes the wrapped stream.
+   *
+   * <p>If sync flush is enabled, the deflater is flushed first so that all the data written
+   * so far is written to the wrapped stream.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (this.syncFlush) {
+      deflateInput();
+      Deflater d = deflater();
+      int n;
+      do {
+        n = d.deflate(this.output, 0, this.output.length, Deflater.SYNC_FLUSH);
+        this.out.write(this.output, 0, n);
+      } while (n == this.output.length);
+    }
+    this.out.flush();
+  }
+
+  /**
+   * Finishes writing the compressed data without closing the wrapped stream.
+   *
+   * <p>The deflater is returned to the pool and no more data can be written to this stream.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  public void finish() throws IOException {
+    if (this.finished) return;
+    Deflater d = deflater();
+    try {
+      deflateInput();
+      d.finish();
+      while (!d.finished()) {
+        int n = d.deflate(this.output);
+        this.out.write(this.output, 0, n);
+      }
+      if (this.crc != null) {
+        GzipFormat.writeTrailer(this.out, this.output, this.crc.getValue(), d.getBytesRead());
+      }
+    } finally {
+      this.finished = true;
+      this.deflater = null;
+      this.pool.release(d, this.level, this.nowrap);
+    }
+  }
+
+  /**
+   * Finishes writing the compressed data and closes the wrapped stream.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      this.out.close();
+    }
+  }
+
+  /**
+   * Deflates the bytes accumulated in the input buffer.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  private void deflateInput() throws IOException {
+    if (this.inputLength > 0) {
+      deflate(this.input, 0, this.inputLength);
+      this.inputLength = 0;
+    }
+  }
+
+  /**
+   * Deflates the specified bytes.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  private void deflate(byte[] b, int off, int len) throws IOException {
+    if (this.crc != null) {
+      this.crc.update(b, off, len);
+    }
+    Deflater d = deflater();
+    d.setInput(b, off, len);
+    while (!d.needsInput()) {
+      int n = d.deflate(this.output);
+      this.out.write(this.output, 0, n);
+    }
+  }
+
+  private Deflater deflater() throws IOException {
+    Deflater d = this.deflater;
+    if (d == null) throw new IOException("Stream finished");
+    return d;
+  }
+
+  /**
+   * @throws IOException If the compressed data has been finished.
+   */
+  private void ensureOpen() throws IOException {
+    if (this.finished) throw new IOException("Stream finished");
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * A bounded pool of deflaters for each compression level.
+ *
+ * <p>Deflaters hold native memory which is only released when they are ended, so the streams
+ * in this package borrow them from this pool and give them back once they are finished.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class DeflaterPool {
+
+  /**
+   * The pool shared by the streams in this package.
+   */
+  static final DeflaterPool SHARED = new DeflaterPool(8);
+
+  /**
+   * The deflaters available for each level (-1 to 9) with and without the zlib wrapper.
+   */
+  private final BlockingQueue<Deflater>[] available;
+
+  /**
+   * Creates a new pool.
+   *
+   * @param maxPooled The maximum number of deflaters kept in the pool for each level.
+   */
+  DeflaterPool(int maxPooled) {
+    @SuppressWarnings("unchecked")
+    BlockingQueue<Deflater>[] queues = (BlockingQueue<Deflater>[]) new BlockingQueue<?>[22];
+    for (int i = 0; i < queues.length; i++) {
+      queues[i] = new ArrayBlockingQueue<>(maxPooled);
+    }
+    this.available = queues;
+  }
+
+  /**
+   * Returns a deflater from the pool or creates a new one if none is available.
+   *
+   * @param level  The compression level (-1 to 9).
+   * @param nowrap <code>true</code> for raw deflate data without the zlib wrapper.
+   *
+   * @return A deflater ready to be used.
+   *
+   * @throws IllegalArgumentException If the compression level is invalid.
+   */
+  Deflater acquire(int level, boolean nowrap) {
+    Deflater deflater = this.available[index(level, nowrap)].poll();
+    return deflater != null ? deflater : new Deflater(level, nowrap);
+  }
+
+  /**
+   * Gives a deflater back to the pool.
+   *
+   * <p>The deflater is ended if the pool is full.
+   *
+   * @param deflater A deflater acquired from this pool.
+   * @param level    The compression level it was acquired with.
+   * @param nowrap   Whether it was acquired for raw deflate data.
+   */
+  void release(Deflater deflater, int level, boolean nowrap) {
+    deflater.reset();
+    if (!this.available[index(level, nowrap)].offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  private static int index(int level, boolean nowrap) {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    return (level + 1) * 2 + (nowrap ? 1 : 0);
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * The header and trailer written around the deflated data by the gzip streams in this package.
+ *
+ * <p>The header is the minimal header written by the JDK, without file name or timestamp.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+final class GzipFormat {
+
+  /**
+   * The gzip header as written by the JDK.
+   */
+  private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+  /**
+   * The size of the gzip trailer in bytes.
+   */
+  static final int TRAILER_SIZE = 8;
+
+  /**
+   * Prevents creation of instances.
+   */
+  private GzipFormat() {
+  }
+
+  /**
+   * Writes the gzip header.
+   *
+   * @param out The stream to write to.
+   *
+   * @throws IOException If thrown by the stream.
+   */
+  static void writeHeader(OutputStream out) throws IOException {
+    out.write(HEADER);
+  }
+
+  /**
+   * Writes the gzip trailer using the start of the specified buffer.
+   *
+   * @param out  The stream to write to.
+   * @param buf  A buffer of at least {@link #TRAILER_SIZE} bytes.
+   * @param crc  The CRC-32 of the uncompressed data.
+   * @param size The number of uncompressed bytes.
+   *
+   * @throws IOException If thrown by the stream.
+   */
+  static void writeTrailer(OutputStream out, byte[] buf, long crc, long size) throws IOException {
+    writeIntLE(buf, 0, (int) crc);
+    writeIntLE(buf, 4, (int) size);
+    out.write(buf, 0, TRAILER_SIZE);
+  }
+
+  private static void writeIntLE(byte[] b, int off, int value) {
+    b[off] = (byte) value;
+    b[off + 1] = (byte) (value >> 8);
+    b[off + 2] = (byte) (value >> 16);
+    b[off + 3] = (byte) (value >> 24);
+  }
+
+}
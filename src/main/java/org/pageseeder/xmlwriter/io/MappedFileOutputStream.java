@@ -0,0 +1,212 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An output stream writing into a memory-mapped window over a file.
+ *
+ * <p>Bytes are copied straight into the mapped memory without any system call: when the
+ * window is full, the next window is mapped after it, growing the file as needed. When the
+ * stream is closed, the file is truncated to the exact number of bytes written.
+ *
+ * <p>Prefer this stream for very large documents written to a local file, where the cost of
+ * mapping each window is small compared to a system call for every buffer, for example:
+ * <pre>
+ *   XMLWriter xml = new XMLWriterImpl(new MappedFileOutputStream(path));
+ * </pre>
+ *
+ * <p>Flushing this stream does nothing since the data written in the mapped memory is
+ * already visible to the operating system; use {@link #force()} to write it to the device.
+ *
+ * <p>Note: the JDK does not allow mappings to be released explicitly, they are released
+ * when garbage collected. On some platforms (Windows), this prevents the file from being
+ * truncated when it is closed.
+ *
+ * <p>This class is not synchronised.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public final class MappedFileOutputStream extends OutputStream {
+
+  /**
+   * The default size of the mapped window (64MB).
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+  /**
+   * The channel to the file.
+   */
+  private final FileChannel channel;
+
+  /**
+   * The size of each window.
+   */
+  private final int windowSize;
+
+  /**
+   * The current window.
+   */
+  private MappedByteBuffer window;
+
+  /**
+   * The position in the file of the current window.
+   */
+  private long windowStart = 0;
+
+  /**
+   * Whether this stream has been closed.
+   */
+  private boolean closed = false;
+
+  /**
+   * Creates a new stream writing to the specified file using the default window size.
+   *
+   * <p>The file is created if it does not exist and truncated otherwise.
+   *
+   * @param file The file to write to.
+   *
+   * @throws IOException If the file could not be opened or mapped.
+   */
+  public MappedFileOutputStream(Path file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Creates a new stream writing to the specified file.
+   *
+   * <p>The file is created if it does not exist and truncated otherwise.
+   *
+   * @param file       The file to write to.
+   * @param windowSize The number of bytes to map at a time.
+   *
+   * @throws IOException If the file could not be opened or mapped.
+   * @throws IllegalArgumentException If the window size is not strictly positive.
+   */
+  public MappedFileOutputStream(Path file, int windowSize) throws IOException {
+    if (windowSize <= 0)
+      throw new IllegalArgumentException("The window size must be strictly positive");
+    this.windowSize = windowSize;
+    // Mapping in read/write mode requires the channel to be readable
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      this.window = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, windowSize);
+    } catch (IOException ex) {
+      this.channel.close();
+      throw ex;
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    // The mapping outlives the truncated file: never write to it once closed
+    ensureOpen();
+    if (!this.window.hasRemaining()) {
+      next();
+    }
+    this.window.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    int o = off;
+    int remaining = len;
+    while (remaining > 0) {
+      if (!this.window.hasRemaining()) {
+        next();
+      }
+      int n = Math.min(remaining, this.window.remaining());
+      this.window.put(b, o, n);
+      o += n;
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Does nothing except checking that this stream is open.
+   *
+   * @throws IOException If this stream is closed.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+  }
+
+  /**
+   * Forces the bytes written so far in the current window to be written to the device.
+   *
+   * @throws IOException If this stream is closed.
+   */
+  public void force() throws IOException {
+    ensureOpen();
+    this.window.force();
+  }
+
+  /**
+   * Returns the number of bytes written so far.
+   *
+   * @return the number of bytes written so far.
+   */
+  public long size() {
+    return this.windowStart + this.window.position();
+  }
+
+  /**
+   * Truncates the file to the number of bytes written and closes it.
+   *
+   * @throws IOException If thrown while truncating or closing the file.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) return;
+    this.closed = true;
+    try {
+      this.channel.truncate(size());
+    } finally {
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Maps the window following the current one.
+   *
+   * @throws IOException If the window could not be mapped.
+   */
+  private void next() throws IOException {
+    long start = this.windowStart + this.window.position();
+    this.window = this.channel.map(FileChannel.MapMode.READ_WRITE, start, this.windowSize);
+    this.windowStart = start;
+  }
+
+  /**
+   * @throws IOException If this stream is closed.
+   */
+  private void ensureOpen() throws IOException {
+    if (this.closed) throw new IOException("Stream closed");
+  }
+
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream compressing blocks of data in parallel into a single gzip stream.
+ *
+ * <p>As <i>pigz</i> does, the data is cut into fixed-size blocks which are compressed
+ * independently on an executor, each block using the end of the previous block as its
+ * dictionary so that the compression ratio is close to that of a single deflater. Each
+ * compressed block is byte-aligned with a sync flush, except the last which is finished,
+ * and the blocks are written in order after a standard gzip header, so that the result
+ * can be read by any gzip decompressor.
+ *
+ * <p>Choose this stream over {@link CompressedOutputStream} for a single large document when
+ * spare cores are available; for small documents the cost of handing blocks to the executor
+ * outweighs the gain. For example:
+ * <pre>
+ *   XMLWriter xml = new XMLWriterImpl(new ParallelGzipOutputStream(new FileOutputStream(file)));
+ * </pre>
+ *
+ * <p>The number of blocks being compressed at the same time is bounded so that memory usage
+ * stays proportional to the block size and the parallelism.
+ *
+ * <p>This class is not synchronised: only the thread generating the data should use it.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 1.2.0
+ * @version 1.2.0
+ */
+public final class ParallelGzipOutputStream extends OutputStream {
+
+  /**
+   * The default size of each block (128KB).
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 1 << 17;
+
+  /**
+   * The maximum size of a deflate dictionary (32KB).
+   */
+  private static final int DICTIONARY_SIZE = 1 << 15;
+
+  /**
+   * Where the deflaters come from.
+   */
+  private final DeflaterPool pool = DeflaterPool.SHARED;
+
+  /**
+   * The wrapped stream.
+   */
+  private final OutputStream out;
+
+  /**
+   * The compression level.
+   */
+  private final int level;
+
+  /**
+   * The size of each block.
+   */
+  private final int blockSize;
+
+  /**
+   * Compresses the blocks.
+   */
+  private final Executor executor;
+
+  /**
+   * The maximum number of blocks being compressed.
+   */
+  private final int maxPending;
+
+  /**
+   * The blocks being compressed in the order they must be written.
+   */
+  private final Queue<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+  /**
+   * The checksum of the uncompressed data.
+   */
+  private final CRC32 crc = new CRC32();
+
+  /**
+   * The total number of uncompressed bytes.
+   */
+  private long size = 0;
+
+  /**
+   * The block being filled.
+   */
+  private byte[] block;
+
+  /**
+   * The number of bytes in the current block.
+   */
+  private int length = 0;
+
+  /**
+   * The previous block (used as dictionary).
+   */
+  private byte @Nullable [] previous = null;
+
+  /**
+   * The number of bytes in the previous block.
+   */
+  private int previousLength = 0;
+
+  /**
+   * Whether this stream has been finished.
+   */
+  private boolean finished = false;
+
+  /**
+   * Creates a new parallel gzip stream using the default compression level, block size and
+   * the common fork-join pool.
+   *
+   * @param out The stream to write the compressed data to.
+   *
+   * @throws IOException If the gzip header could not be written.
+   */
+  public ParallelGzipOutputStream(OutputStream out) throws IOException {
+    this(out, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool(),
+        ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * Creates a new parallel gzip stream.
+   *
+   * @param out         The stream to write the compressed data to.
+   * @param level       The compression level from 0 to 9, or -1 for the default level.
+   * @param blockSize   The size of each block of uncompressed data.
+   * @param executor    The executor compressing the blocks.
+   * @param parallelism The number of blocks which can be compressed at the same time.
+   *
+   * @throws IOException If the gzip header could not be written.
+   * @throws IllegalArgumentException If the level, block size or parallelism is invalid.
+   */
+  public ParallelGzipOutputStream(OutputStream out, int level, int blockSize, Executor executor, int parallelism)
+      throws IOException {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    if (blockSize < DICTIONARY_SIZE)
+      throw new IllegalArgumentException("The block size must be at least " + DICTIONARY_SIZE);
+    if (parallelism <= 0)
+      throw new IllegalArgumentException("The parallelism must be strictly positive");
+    this.out = Objects.requireNonNull(out, "Cannot write to a null stream");
+    this.executor = Objects.requireNonNull(executor, "The executor is required");
+    this.level = level;
+    this.blockSize = blockSize;
+    this.maxPending = parallelism * 2;
+    this.block = new byte[blockSize];
+    GzipFormat.writeHeader(out);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    if (this.length == this.blockSize) {
+      submit(false);
+    }
+    this.block[this.length++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    int o = off;
+    int remaining = len;
+    while (remaining > 0) {
+      if (this.length == this.blockSize) {
+        submit(false);
+      }
+      int n = Math.min(remaining, this.blockSize - this.length);
+      System.arraycopy(b, o, this.block, this.length, n);
+      this.length += n;
+      o += n;
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Compresses the current block, writes all the compressed blocks and flushes the wrapped
+   * stream.
+   *
+   * <p>This method blocks until all the blocks have been compressed.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (this.length > 0) {
+      submit(false);
+    }
+    while (!this.pending.isEmpty()) {
+      writeNext();
+    }
+    this.out.flush();
+  }
+
+  /**
+   * Finishes writing the compressed data without closing the wrapped stream.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  public void finish() throws IOException {
+    if (this.finished) return;
+    try {
+      submit(true);
+      while (!this.pending.isEmpty()) {
+        writeNext();
+      }
+      byte[] trailer = new byte[GzipFormat.TRAILER_SIZE];
+      GzipFormat.writeTrailer(this.out, trailer, this.crc.getValue(), this.size);
+    } finally {
+      this.finished = true;
+    }
+  }
+
+  /**
+   * Finishes writing the compressed data and closes the wrapped stream.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      this.out.close();
+    }
+  }
+
+  /**
+   * Submits the current block for compression and starts a new block.
+   *
+   * <p>If too many blocks are pending, the first one is written first.
+   *
+   * @param last Whether it is the last block.
+   *
+   * @throws IOException If thrown by the wrapped stream.
+   */
+  private void submit(boolean last) throws IOException {
+    while (this.pending.size() >= this.maxPending) {
+      writeNext();
+    }
+    final byte[] data = this.block;
+    final int len = this.length;
+    final byte @Nullable [] dictionary = this.previous;
+    final int dictionaryLength = Math.min(this.previousLength, DICTIONARY_SIZE);
+    final int dictionaryOffset = this.previousLength - dictionaryLength;
+    this.crc.update(data, 0, len);
+    this.size += len;
+    this.pending.add(CompletableFuture.supplyAsync(
+        () -> compress(data, len, dictionary, dictionaryOffset, dictionaryLength, last), this.executor));
+    // Blocks are not reused since they may still be used as data or dictionary
+    this.previous = data;
+    this.previousLength = len;
+    this.block = new byte[this.blockSize];
+    this.length = 0;
+  }
+
+  /**
+   * Waits for the first pending block to be compressed and writes it.
+   *
+   * @throws IOException If thrown by the wrapped stream or if the compression failed.
+   */
+  private void writeNext() throws IOException {
+    CompletableFuture<byte[]> next = this.pending.remove();
+    try {
+      this.out.write(next.get());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a block to be compressed");
+    } catch (ExecutionException ex) {
+      throw new IOException("Unable to compress block", ex.getCause());
+    }
+  }
+
+  /**
+   * Compresses a block.
+   *
+   * @return The compressed block
+   */
+  private byte[] compress(byte[] data, int len, byte @Nullable [] dictionary, int dictionaryOffset,
+                          int dictionaryLength, boolean last) {
+    Deflater deflater = this.pool.acquire(this.level, true);
+    try {
+      if (dictionary != null && dictionaryLength > 0) {
+        deflater.setDictionary(dictionary, dictionaryOffset, dictionaryLength);
+      }
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(len / 2 + 64);
+      byte[] buf = new byte[8192];
+      deflater.setInput(data, 0, len);
+      if (last) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          int n = deflater.deflate(buf);
+          compressed.write(buf, 0, n);
+        }
+      } else {
+        while (!deflater.needsInput()) {
+          int n = deflater.deflate(buf);
+          compressed.write(buf, 0, n);
+        }
+        // Sync flush so that the block ends on a byte boundary
+        int n;
+        do {
+          n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+          compressed.write(buf, 0, n);
+        } while (n == buf.length);
+      }
+      return compressed.toByteArray();
+    } finally {
+      this.pool.release(deflater, this.level, true);
+    }
+  }
+
+  /**
+   * @throws IOException If the compressed data has been finished.
+   */
+  private void ensureOpen() throws IOException {
+    if (this.finished) throw new IOException("Stream finished");
+  }
+
+}
@@ -16,6 +16,7 @@
 package org.pageseeder.xmlwriter.sax;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.*;
 
 import org.jspecify.annotations.Nullable;
@@ -94,7 +95,7 @@ public final class XMLWriterSAX implements XMLWriter {
   /**
    * Where the XML data goes.
    */
-  private final ContentHandler handler;
+  private ContentHandler handler;
 
   /**
    * Indicates whether the xml should be indented or not.
@@ -110,6 +111,16 @@ public final class XMLWriterSAX implements XMLWriter {
    */
   private char[] indentChars;
 
+  /**
+   * A new line followed by the indentation characters repeated for the deepest level reached so far.
+   */
+  private char[] indentRun = NEW_LINE;
+
+  /**
+   * Indicates that a new line is due before the next event, reported with the next indentation.
+   */
+  private boolean newLinePending = false;
+
   /**
    * State variable indicating the depth level of the current context.
    */
@@ -156,6 +167,33 @@ public final class XMLWriterSAX implements XMLWriter {
     this.prefixMapping.put(XMLConstants.NULL_NS_URI, XMLConstants.DEFAULT_NS_PREFIX);
   }
 
+  /**
+   * Resets this XML writer so that it can report the events of a new document to the
+   * specified handler.
+   *
+   * <p>The state of the current document is discarded. The indentation is kept, as well as
+   * the element stack and prefix mappings so that the same instance can be reused for many
+   * documents.
+   *
+   * @param handler The SAX2 content handler to use.
+   *
+   * @throws NullPointerException If the handler is <code>null</code>.
+   *
+   * @since 1.2.0
+   */
+  public void reset(ContentHandler handler) {
+    this.handler = Objects.requireNonNull(handler, "XMLWriter cannot use a null content handler.");
+    this.depth = 0;
+    this.isOpenTagIncomplete = false;
+    this.newLinePending = false;
+    this.elements.clear();
+    this.elements.add(ROOT);
+    this.prefixMapping.clear();
+    this.prefixMapping.put(XMLConstants.NULL_NS_URI, XMLConstants.DEFAULT_NS_PREFIX);
+    this.tempMapping = null;
+    this.attributes.clear();
+  }
+
   /**
    * Does nothing.
    */
@@ -184,6 +222,7 @@ public final class XMLWriterSAX implements XMLWriter {
           throw new IllegalArgumentException("Not a valid indentation string.");
       }
       this.indentChars = spaces.toCharArray();
+      this.indentRun = NEW_LINE;
     }
     // update the flags
     this.indent = spaces != null;
@@ -194,6 +233,7 @@ public final class XMLWriterSAX implements XMLWriter {
     if (text == null) return;
     try {
       ensureCompleteOpenTag();
+      writeNewLine();
       this.handler.characters(text.toCharArray(), 0, text.length());
     } catch (SAXException ex) {
       handleEx(ex);
@@ -204,16 +244,58 @@ public final class XMLWriterSAX implements XMLWriter {
   public void writeText(char[] text, int off, int len) throws IOException {
     try {
       ensureCompleteOpenTag();
+      writeNewLine();
       this.handler.characters(text, off, len);
     } catch (SAXException ex) {
       handleEx(ex);
     }
   }
 
+  /**
+   * Reports the characters straight from the sequence, in chunks if necessary.
+   *
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeText(@Nullable CharSequence text) throws IOException {
+    if (text == null) return;
+    if (text instanceof String) {
+      writeText((String) text);
+      return;
+    }
+    try {
+      ensureCompleteOpenTag();
+      writeNewLine();
+      if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+        CharBuffer cb = (CharBuffer) text;
+        this.handler.characters(cb.array(), cb.arrayOffset() + cb.position(), cb.remaining());
+      } else {
+        final int len = text.length();
+        char[] chunk = new char[Math.min(len, 1024)];
+        int off = 0;
+        while (off < len) {
+          int n = Math.min(len - off, chunk.length);
+          // Do not split surrogate pairs between two events
+          if (off + n < len && Character.isHighSurrogate(text.charAt(off + n - 1))) {
+            n--;
+          }
+          for (int i = 0; i < n; i++) {
+            chunk[i] = text.charAt(off + i);
+          }
+          this.handler.characters(chunk, 0, n);
+          off += n;
+        }
+      }
+    } catch (SAXException ex) {
+      handleEx(ex);
+    }
+  }
+
   @Override
   public void writeText(char c) throws IOException {
     try {
       ensureCompleteOpenTag();
+      writeNewLine();
       this.handler.characters(new char[] {c}, 0, 1);
     } catch (SAXException ex) {
       handleEx(ex);
@@ -244,6 +326,7 @@ public final class XMLWriterSAX implements XMLWriter {
     if (data == null) return;
     try {
       ensureCompleteOpenTag();
+      writeNewLine();
       this.handler.characters(data.toCharArray(), 0, data.length());
     } catch (SAXException ex) {
       handleEx(ex);
@@ -271,6 +354,15 @@ public final class XMLWriterSAX implements XMLWriter {
     throw new UnsupportedOperationException("Cannot run unparsed XML as SAX events");
   }
 
+  /**
+   * Always throw an <code>UnsupportedOperationException</code> exception.
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeXML(@Nullable CharSequence text) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("Cannot run unparsed XML as SAX events");
+  }
+
   // PI and comments ----------------------------------------------------------------------
 
   /**
@@ -286,6 +378,7 @@ public final class XMLWriterSAX implements XMLWriter {
   public void writePI(String target, String data) throws IOException {
     try {
       ensureCompleteOpenTag();
+      writeNewLine();
       this.handler.processingInstruction(target, data);
       if (this.indent) {
         newLine();
@@ -304,6 +397,13 @@ public final class XMLWriterSAX implements XMLWriter {
     this.attributes.addAttribute(name, value);
   }
 
+  @Override
+  public void attribute(String name, CharSequence value) throws IOException {
+    if (!this.isOpenTagIncomplete)
+      throw new IllegalStateException("Cannot write attribute: too late!");
+    this.attributes.addAttribute(name, value.toString());
+  }
+
   @Override
   public void attribute(String name, int value) throws IOException {
     if (!this.isOpenTagIncomplete)
@@ -503,13 +603,22 @@ public final class XMLWriterSAX implements XMLWriter {
    */
   private void indent() throws SAXException {
     if (this.indent) {
-      char[] ch = new char[this.depth * this.indentChars.length];
-      for (int i = 0; i < this.depth; i++) {
-        for (int j = 0; j < this.indentChars.length; j++) {
-          ch[i * this.indentChars.length + j] = this.indentChars[j];
+      final int n = this.indentChars.length;
+      int end = 1 + this.depth * n;
+      if (end > this.indentRun.length) {
+        char[] run = new char[1 + Math.max(this.depth * 2, 8) * n];
+        run[0] = '\n';
+        for (int i = 1; i < run.length; i += n) {
+          System.arraycopy(this.indentChars, 0, run, i, n);
         }
+        this.indentRun = run;
       }
-      this.handler.ignorableWhitespace(ch, 0, ch.length);
+      // Report any pending new line with the indentation in a single event
+      int start = this.newLinePending ? 0 : 1;
+      this.newLinePending = false;
+      this.handler.ignorableWhitespace(this.indentRun, start, end - start);
+    } else {
+      writeNewLine();
     }
   }
 
@@ -536,6 +645,8 @@ public final class XMLWriterSAX implements XMLWriter {
       // the element contains text / has children
       if (element.hasChildren) {
         indent();
+      } else {
+        writeNewLine();
       }
       this.handler.endElement(element.uri, element.name, getQName(element.uri, element.name));
       // restore previous mapping if necessary
@@ -734,15 +845,30 @@ public final class XMLWriterSAX implements XMLWriter {
     Element open = peekElement();
     if (open != ROOT)
       throw new UnclosedElementException(open.name);
+    try {
+      writeNewLine();
+    } catch (SAXException ex) {
+      handleEx(ex);
+    }
+  }
+
+  /**
+   * Defers a new line until the next event, so that it can be reported with the indentation.
+   */
+  private void newLine() {
+    this.newLinePending = true;
   }
 
   /**
-   * Generates a new line as an ignorable white space event
+   * Reports the pending new line, if any, as a character event.
    *
    * @throws SAXException If thrown by the handler.
    */
-  private void newLine() throws SAXException {
-    this.handler.characters(NEW_LINE, 0, 1);
+  private void writeNewLine() throws SAXException {
+    if (this.newLinePending) {
+      this.newLinePending = false;
+      this.handler.characters(NEW_LINE, 0, 1);
+    }
   }
 
   /**
@@ -887,6 +1013,15 @@ public final class XMLWriterSAX implements XMLWriter {
       this.values.add(value);
     }
 
+    /**
+     * Removes all the attributes from the list.
+     */
+    public void clear() {
+      this.uris.clear();
+      this.names.clear();
+      this.values.clear();
+    }
+
     // Attributes methods, indexed access -------------------------------------------------
 
     /**
@@ -23,9 +23,13 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.pageseeder.diffx.load.SAXLoader;
 import org.pageseeder.diffx.xml.Sequence;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A base class for testing <code>XMLWriter</code>s implementation.
@@ -118,6 +122,22 @@ public abstract class BaseXMLWriterTest {
     assertThrows(IllegalCloseElementException.class, () -> this.xml.closeElement());
   }
 
+  /**
+   * Checks that the end tag of an element opened with inline attributes only includes its name.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testCloseElementInlineAttributes() throws IOException {
+    this.xml.openElement("x a='1'", true);
+    this.xml.openElement("y b='2' c='3'");
+    this.xml.writeText("text");
+    this.xml.closeElement();
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquals("<x a='1'><y b='2' c='3'>text</y></x>", getXMLString());
+  }
+
   // test: element
   // --------------------------------------------------------------------------
 
@@ -204,6 +224,115 @@ public abstract class BaseXMLWriterTest {
     assertEquivalent("<x a='m' b='n'/>", getXMLString());
   }
 
+  /**
+   * Checks that numeric attributes are written correctly.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testAttributeNumbers() throws IOException {
+    this.xml.openElement("x");
+    this.xml.attribute("a", 0);
+    this.xml.attribute("b", -42);
+    this.xml.attribute("c", Integer.MIN_VALUE);
+    this.xml.attribute("d", Long.MAX_VALUE);
+    this.xml.attribute("e", Long.MIN_VALUE);
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquivalent("<x a='0' b='-42' c='-2147483648' d='9223372036854775807' e='-9223372036854775808'/>", getXMLString());
+  }
+
+  /**
+   * Checks that attributes with a list of numbers are written correctly.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testAttributeNumberLists() throws IOException {
+    this.xml.openElement("x");
+    this.xml.attributeList("a", new int[]{1, -2, 3});
+    this.xml.attributeList("b", new long[]{10000000000L});
+    this.xml.attributeList("c", new int[0]);
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquivalent("<x a='1 -2 3' b='10000000000' c=''/>", getXMLString());
+  }
+
+  /**
+   * Checks that <code>null</code> literals still resolve to the string methods.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testNullLiterals() throws IOException {
+    this.xml.openElement("x");
+    this.xml.attribute("a", null);
+    this.xml.writeText(null);
+    this.xml.writeXML(null);
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquivalent("<x a=''/>", getXMLString());
+  }
+
+  /**
+   * Checks that numbers are written as text correctly.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testTextNumbers() throws IOException {
+    this.xml.openElement("x");
+    this.xml.writeText(123);
+    this.xml.writeText(' ');
+    this.xml.writeText(-9876543210L);
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquivalent("<x>123 -9876543210</x>", getXMLString());
+  }
+
+  /**
+   * Checks that elements and attributes written using name handles are written correctly.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testNameHandles() throws IOException {
+    XMLName x = XMLName.of("x");
+    XMLName y = XMLName.of("y");
+    XMLName a = XMLName.of("a");
+    this.xml.openElement(x, true);
+    this.xml.attribute(a, "m&n");
+    this.xml.openElement(y);
+    this.xml.attribute(a, 1);
+    this.xml.attribute(XMLName.of("b"), 2L);
+    this.xml.closeElement();
+    this.xml.element(y, "text");
+    this.xml.emptyElement(y);
+    this.xml.openElement(y);
+    this.xml.writeText("text");
+    this.xml.closeElement();
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquivalent("<x a='m&amp;n'><y a='1' b='2'/><y>text</y><y/><y>text</y></x>", getXMLString());
+  }
+
+  /**
+   * Checks that name handles are indented like names.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testNameHandlesIndentation() throws IOException {
+    this.xml.setIndentChars("  ");
+    this.xml.openElement(XMLName.of("x"), true);
+    this.xml.openElement(XMLName.of("y"), true);
+    this.xml.element(XMLName.of("z"), "text");
+    this.xml.closeElement();
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquals("<x>\n  <y>\n    <z>text</z>\n  </y>\n</x>", getXMLString());
+  }
+
   // test: escape
   // -------------------------------------------------------------------------
 
@@ -336,6 +465,31 @@ public abstract class BaseXMLWriterTest {
     assertEquals(expected, getXMLString());
   }
 
+  /**
+   * Checks that the indentation is correct for deeply nested elements.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testIndentationDeep() throws IOException {
+    this.xml.setIndentChars(" ");
+    StringBuilder expected = new StringBuilder();
+    final int depth = 20;
+    for (int i = 0; i < depth; i++) {
+      this.xml.openElement("e" + i, true);
+      expected.append(" ".repeat(i)).append("<e").append(i).append(">\n");
+    }
+    this.xml.emptyElement("leaf");
+    expected.append(" ".repeat(depth)).append("<leaf/>\n");
+    for (int i = depth - 1; i >= 0; i--) {
+      this.xml.closeElement();
+      expected.append(" ".repeat(i)).append("</e").append(i).append(">");
+      if (i > 0) expected.append('\n');
+    }
+    this.xml.close();
+    assertEquals(expected.toString(), getXMLString());
+  }
+
   /**
    * @throws IOException If an I/O error occurs.
    */
@@ -391,6 +545,106 @@ public abstract class BaseXMLWriterTest {
     assertEquals(expected, getXMLString());
   }
 
+  // test: streaming text
+  // --------------------------------------------------------------------------
+
+  /**
+   * Checks that text read from a reader is escaped across chunks, including surrogate pairs
+   * straddling two chunks.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testWriteTextReader() throws IOException {
+    StringBuilder text = new StringBuilder();
+    StringBuilder expected = new StringBuilder("<x>");
+    for (int i = 0; i < 4095; i++) {
+      text.append('a');
+      expected.append('a');
+    }
+    String tail = "\ud83d\ude4a <&> " + "z".repeat(10000);
+    text.append(tail);
+    expected.append("&#x1f64a; &lt;&amp;&gt; ").append("z".repeat(10000)).append("</x>");
+    this.xml.openElement("x");
+    this.xml.writeTextFrom(new StringReader(text.toString()));
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquals(expected.toString(), getXMLString());
+  }
+
+  /**
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testWriteTextInputStream() throws IOException {
+    byte[] bytes = "caf\u00e9 & cr\u00e8me".getBytes(StandardCharsets.UTF_8);
+    this.xml.openElement("x");
+    this.xml.writeTextFrom(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquals("<x>caf\u00e9 &amp; cr\u00e8me</x>", getXMLString());
+  }
+
+  /**
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testAttributeReader() throws IOException {
+    this.xml.openElement("x");
+    this.xml.attributeFrom("title", new StringReader("\"a\" < b"));
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquals("<x title=\"&quot;a&quot; &lt; b\"/>", getXMLString());
+  }
+
+  /**
+   * Checks that text is escaped straight from a string builder, including surrogate pairs
+   * straddling two chunks.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testWriteTextCharSequence() throws IOException {
+    StringBuilder text = new StringBuilder("a".repeat(1023)).append("\ud83d\ude4a<&>");
+    this.xml.openElement("x");
+    this.xml.writeText(text);
+    this.xml.writeText(CharBuffer.wrap("--b&c--", 2, 5));
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquals("<x>" + "a".repeat(1023) + "&#x1f64a;&lt;&amp;&gt;b&amp;c</x>", getXMLString());
+  }
+
+  /**
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testAttributeCharSequence() throws IOException {
+    this.xml.openElement("x");
+    this.xml.attribute("title", new StringBuilder("\"a\" < b"));
+    this.xml.writeXML(new StringBuilder("<y/>"));
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquals("<x title=\"&quot;a&quot; &lt; b\"><y/></x>", getXMLString());
+  }
+
+  /**
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public final void testWriteBinary() throws IOException {
+    byte[] data = "binary\u0000data".getBytes(StandardCharsets.UTF_8);
+    this.xml.openElement("x", true);
+    this.xml.openElement("base64");
+    this.xml.writeBase64From(new ByteArrayInputStream(data), 8);
+    this.xml.closeElement();
+    this.xml.openElement("hex");
+    this.xml.writeHex(data, 0, 6);
+    this.xml.closeElement();
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquals("<x><base64>YmluYXJ5\nAGRhdGE=</base64><hex>62696E617279</hex></x>", getXMLString());
+  }
+
   // test: close
   // --------------------------------------------------------------------------
 
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>BinaryEncoder</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class BinaryEncoderTest {
+
+  @Test
+  void testBase64() throws IOException {
+    for (int len = 0; len < 10; len++) {
+      byte[] data = bytes(len);
+      assertEquals(Base64.getEncoder().encodeToString(data), base64(data, 0));
+    }
+    byte[] large = bytes(10000);
+    assertEquals(Base64.getEncoder().encodeToString(large), base64(large, 0));
+  }
+
+  @Test
+  void testBase64Stream() throws IOException {
+    byte[] data = bytes(10001);
+    StringBuilder out = new StringBuilder();
+    BinaryEncoder encoder = new BinaryEncoder(out::append, new char[100], 0);
+    encoder.base64(new ByteArrayInputStream(data));
+    encoder.finish();
+    assertEquals(Base64.getEncoder().encodeToString(data), out.toString());
+  }
+
+  @Test
+  void testBase64Lines() throws IOException {
+    for (int len : new int[]{0, 1, 56, 57, 58, 114, 10000}) {
+      byte[] data = bytes(len);
+      assertEquals(Base64.getMimeEncoder(76, new byte[]{'\n'}).encodeToString(data), base64(data, 76));
+    }
+  }
+
+  @Test
+  void testHex() throws IOException {
+    byte[] data = {0, 1, 15, 16, 127, -128, -1};
+    StringBuilder out = new StringBuilder();
+    BinaryEncoder encoder = new BinaryEncoder(out::append, new char[3], 4);
+    encoder.hex(data, 1, 5);
+    encoder.finish();
+    assertEquals("010F\n107F\n80", out.toString());
+  }
+
+  @Test
+  void testNegativeLineLength() {
+    assertThrows(IllegalArgumentException.class, () -> new BinaryEncoder(new StringBuilder()::append, new char[8], -1));
+  }
+
+  private static String base64(byte[] data, int lineLength) throws IOException {
+    StringBuilder out = new StringBuilder();
+    BinaryEncoder encoder = new BinaryEncoder(out::append, new char[64], lineLength);
+    encoder.base64(data, 0, data.length);
+    encoder.finish();
+    return out.toString();
+  }
+
+  private static byte[] bytes(int length) {
+    byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    return data;
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A test class for the <code>CharOutput</code> buffer used by the XML writers.
+ *
+ * @author Christophe Lauret
+ */
+final class CharOutputTest {
+
+  @Test
+  void testBufferedUntilDrained() throws IOException {
+    StringWriter sink = new StringWriter();
+    CharOutput out = new CharOutput(sink);
+    out.write('<');
+    out.write("x");
+    out.write(new char[]{'/', '>'}, 0, 2);
+    assertEquals("", sink.toString());
+    out.drain();
+    assertEquals("<x/>", sink.toString());
+  }
+
+  @Test
+  void testLargerThanBuffer() throws IOException {
+    StringWriter sink = new StringWriter();
+    CharOutput out = new CharOutput(sink);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      String s = "item-" + i + ";";
+      out.write(s);
+      out.write(s.toCharArray(), 0, s.length());
+      expected.append(s).append(s);
+    }
+    char[] large = new char[20000];
+    Arrays.fill(large, 'z');
+    out.write(large, 0, large.length);
+    expected.append(large);
+    out.flush();
+    assertEquals(expected.toString(), sink.toString());
+  }
+
+  @Test
+  void testWriteLong() throws IOException {
+    StringWriter sink = new StringWriter();
+    CharOutput out = new CharOutput(sink);
+    StringBuilder expected = new StringBuilder();
+    long[] values = {0, 7, -7, 10, 99, Long.MAX_VALUE, Long.MIN_VALUE, Integer.MIN_VALUE};
+    for (int i = 0; i < 2000; i++) {
+      long value = values[i % values.length] - i;
+      out.writeLong(value);
+      out.write(' ');
+      expected.append(value).append(' ');
+    }
+    out.flush();
+    assertEquals(expected.toString(), sink.toString());
+  }
+
+  @Test
+  void testDrainedAtDocumentEnd() throws IOException {
+    StringWriter sink = new StringWriter();
+    XMLWriter xml = new XMLWriterImpl(sink);
+    xml.openElement("a", true);
+    xml.element("b", "text");
+    assertEquals("", sink.toString());
+    xml.closeElement();
+    assertEquals("<a><b>text</b></a>", sink.toString());
+  }
+
+  @Test
+  void testDrainedOnFlush() throws IOException {
+    StringWriter sink = new StringWriter();
+    XMLWriter xml = new XMLWriterNSImpl(sink);
+    xml.openElement("a", true);
+    xml.attribute("x", "1");
+    xml.writeText("text");
+    xml.flush();
+    assertEquals("<a x=\"1\">text", sink.toString());
+  }
+
+}
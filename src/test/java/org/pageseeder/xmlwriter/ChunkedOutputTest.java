@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A test class for the <code>ChunkedOutput</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class ChunkedOutputTest {
+
+  @Test
+  void testWriteAcrossChunks() {
+    ChunkedOutput out = new ChunkedOutput(0);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      out.write("abc", 0, 3);
+      out.write('d');
+      out.writeLong(-1234567890123L * i);
+      expected.append("abcd").append(-1234567890123L * i);
+    }
+    assertEquals(expected.length(), out.length());
+    char[] actual = new char[out.length() + 2];
+    out.getChars(0, out.length(), actual, 1);
+    assertEquals(expected.toString(), new String(actual, 1, out.length()));
+  }
+
+  @Test
+  void testUTF8() {
+    assertUTF8("aé€" + new String(Character.toChars(0x1f64a)) + "z");
+    assertUTF8("a\ud83dz");
+    assertUTF8("a\ude4az");
+    assertUTF8("a\ud83d");
+    assertUTF8("\ud83d🙊");
+  }
+
+  private static void assertUTF8(String s) {
+    ChunkedOutput out = new ChunkedOutput(0);
+    // Make the string straddle two chunks
+    for (int i = 0; i < 63; i++) {
+      out.write('x');
+    }
+    out.write(s, 0, s.length());
+    byte[] expected = ("x".repeat(63) + s).getBytes(StandardCharsets.UTF_8);
+    assertEquals(expected.length, out.utf8Length());
+    assertArrayEquals(expected, out.toUTF8Bytes());
+  }
+
+}
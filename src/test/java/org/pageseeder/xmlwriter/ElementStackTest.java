@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A test class for the <code>ElementStack</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class ElementStackTest {
+
+  @Test
+  void testRoot() {
+    ElementStack stack = new ElementStack();
+    assertTrue(stack.isRoot());
+    assertTrue(stack.hasChildren());
+    assertEquals(-1, stack.frame());
+    assertThrows(IllegalCloseElementException.class, stack::pop);
+  }
+
+  @Test
+  void testPushPop() {
+    ElementStack stack = new ElementStack();
+    XMLName b = XMLName.of("b");
+    stack.push("a x='1'", true, -1);
+    stack.push(b, false, 0);
+    assertSame(b, stack.handle());
+    assertEquals("b", stack.name());
+    assertEquals("</b>", closeTag(stack));
+    assertFalse(stack.hasChildren());
+    assertEquals(0, stack.frame());
+    stack.pop();
+    assertNull(stack.handle());
+    assertEquals("a x='1'", stack.name());
+    assertEquals("</a>", closeTag(stack));
+    assertTrue(stack.hasChildren());
+    stack.pop();
+    assertTrue(stack.isRoot());
+  }
+
+  @Test
+  void testGrow() {
+    ElementStack stack = new ElementStack();
+    for (int i = 0; i < 100; i++) {
+      stack.push("e" + i, i % 2 == 0, i);
+    }
+    for (int i = 99; i >= 0; i--) {
+      assertEquals("e" + i, stack.name());
+      assertEquals(i % 2 == 0, stack.hasChildren());
+      assertEquals(i, stack.frame());
+      stack.pop();
+    }
+    assertTrue(stack.isRoot());
+  }
+
+  @Test
+  void testCloseTagReused() {
+    ElementStack stack = new ElementStack();
+    String[] names = { "a", "a-very-long-element-name", "b y='2'", "c" };
+    for (String name : names) {
+      stack.push(name, false, -1);
+      assertEquals("</" + name.split(" ")[0] + ">", closeTag(stack));
+      stack.pop();
+    }
+  }
+
+  private static String closeTag(ElementStack stack) {
+    return new String(stack.closeTag(), 0, stack.closeTagLength());
+  }
+
+}
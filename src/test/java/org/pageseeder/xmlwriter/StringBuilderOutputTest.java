@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A test class for the XML writers appending to a <code>StringBuilder</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class StringBuilderOutputTest {
+
+  @Test
+  void testWrite() {
+    StringBuilder sink = new StringBuilder();
+    StringBuilderOutput out = new StringBuilderOutput(sink);
+    out.write('<');
+    out.write("xyz", 0, 1);
+    out.write(new char[]{' ', 'n', '='}, 0, 3);
+    out.write('"');
+    out.writeLong(Long.MIN_VALUE);
+    out.writeMarkup("\"/>".toCharArray(), new byte[0]);
+    assertEquals("<x n=\"" + Long.MIN_VALUE + "\"/>", sink.toString());
+  }
+
+  @Test
+  void testAppendToStringBuilder() throws IOException {
+    StringBuilder sink = new StringBuilder("<!-- start -->");
+    XMLWriter xml = new XMLWriterImpl(sink);
+    xml.openElement("a", true);
+    xml.attribute("n", 42);
+    // Appended directly, no need to flush
+    assertEquals("<!-- start --><a n=\"42\"", sink.toString());
+    xml.element("b", "x & y");
+    xml.closeElement();
+    assertEquals("<!-- start --><a n=\"42\"><b>x &amp; y</b></a>", sink.toString());
+  }
+
+  @Test
+  void testAppendToStringBuilderNS() throws IOException {
+    StringBuilder sink = new StringBuilder();
+    XMLWriter xml = new XMLWriterNSImpl(sink, true);
+    xml.setPrefixMapping("http://example.org", "ex");
+    xml.openElement("http://example.org", "a", true);
+    xml.emptyElement("http://example.org", "b");
+    xml.closeElement();
+    assertEquals("<ex:a xmlns:ex=\"http://example.org\">\n  <ex:b/>\n</ex:a>", sink.toString());
+  }
+
+}
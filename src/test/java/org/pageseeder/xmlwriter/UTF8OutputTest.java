@@ -0,0 +1,268 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.xmlwriter.io.ChannelOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>UTF8Output</code> and the XML writers using it.
+ *
+ * @author Christophe Lauret
+ */
+final class UTF8OutputTest {
+
+  /**
+   * A string using 1, 2, 3 and 4 byte UTF-8 sequences.
+   */
+  private static final String MIXED = "aé€" + new String(Character.toChars(0x1f64a)) + "z";
+
+  /**
+   * A name handle with non-ASCII characters.
+   */
+  private static final XMLName SUMMER = XMLName.of("été");
+
+  @Test
+  void testEncodeString() throws IOException {
+    assertEncoded(MIXED);
+  }
+
+  @Test
+  void testEncodeChars() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    UTF8Output out = new UTF8Output(bytes);
+    char[] chars = MIXED.toCharArray();
+    out.write(chars, 0, chars.length);
+    out.close();
+    assertArrayEquals(MIXED.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+  }
+
+  @Test
+  void testEncodeSplitSurrogatePair() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    UTF8Output out = new UTF8Output(bytes);
+    char[] monkey = Character.toChars(0x1f64a);
+    out.write(monkey[0]);
+    out.write(monkey[1]);
+    out.close();
+    assertArrayEquals(new String(monkey).getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+  }
+
+  @Test
+  void testEncodeUnpairedSurrogates() throws IOException {
+    assertEncoded("a\ud83dz");
+    assertEncoded("a\ude4az");
+    assertEncoded("a\ud83d");
+  }
+
+  @Test
+  void testEncodeLargerThanBuffer() throws IOException {
+    StringBuilder s = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      s.append(MIXED);
+    }
+    assertEncoded(s.toString());
+  }
+
+  @Test
+  void testWriteLong() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    UTF8Output out = new UTF8Output(bytes);
+    StringBuilder expected = new StringBuilder();
+    long[] values = {0, 7, -7, 10, 99, Long.MAX_VALUE, Long.MIN_VALUE, Integer.MIN_VALUE};
+    for (int i = 0; i < 2000; i++) {
+      long value = values[i % values.length] - i;
+      out.writeLong(value);
+      out.write(' ');
+      expected.append(value).append(' ');
+    }
+    out.write('\ud83d');
+    out.writeLong(1);
+    expected.append("?1");
+    out.close();
+    assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  void testXMLWriterImpl() throws IOException {
+    StringWriter chars = new StringWriter();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    write(new XMLWriterImpl(chars, true));
+    write(new XMLWriterImpl(bytes, true));
+    assertEquals(chars.toString(), bytes.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  void testXMLWriterNSImpl() throws IOException {
+    StringWriter chars = new StringWriter();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    write(new XMLWriterNSImpl(chars, true));
+    write(new XMLWriterNSImpl(bytes, true));
+    assertEquals(chars.toString(), bytes.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  void testWriteXMLFileToFile() throws IOException {
+    Path fragment = createFragment();
+    Path document = Files.createTempFile("document", ".xml");
+    try (OutputStream out = new FileOutputStream(document.toFile())) {
+      writeFragment(new XMLWriterImpl(out), fragment);
+      out.close();
+      assertEquals("<a x=\"1\"><b>" + MIXED + "</b><c/></a>", Files.readString(document));
+    } finally {
+      Files.delete(fragment);
+      Files.delete(document);
+    }
+  }
+
+  @Test
+  void testWriteXMLFileToChannel() throws IOException {
+    Path fragment = createFragment();
+    Path document = Files.createTempFile("document", ".xml");
+    try (OutputStream out = new ChannelOutputStream(FileChannel.open(document, StandardOpenOption.WRITE))) {
+      writeFragment(new XMLWriterImpl(out), fragment);
+      out.close();
+      assertEquals("<a x=\"1\"><b>" + MIXED + "</b><c/></a>", Files.readString(document));
+    } finally {
+      Files.delete(fragment);
+      Files.delete(document);
+    }
+  }
+
+  @Test
+  void testWriteXMLFileToStream() throws IOException {
+    Path fragment = createFragment();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    StringWriter chars = new StringWriter();
+    try {
+      writeFragment(new XMLWriterNSImpl(bytes), fragment);
+      writeFragment(new XMLWriterImpl(chars), fragment);
+    } finally {
+      Files.delete(fragment);
+    }
+    assertEquals("<a x=\"1\"><b>" + MIXED + "</b><c/></a>", bytes.toString(StandardCharsets.UTF_8.name()));
+    assertEquals("<a x=\"1\"><b>" + MIXED + "</b><c/></a>", chars.toString());
+  }
+
+  @Test
+  void testWriteXMLChannel() throws IOException {
+    byte[] fragment = ("<b>" + MIXED.repeat(3000) + "</b>").getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    XMLWriter xml = new XMLWriterImpl(bytes);
+    xml.openElement("a", true);
+    xml.writeXMLFrom(Channels.newChannel(new ByteArrayInputStream(fragment)));
+    xml.closeElement();
+    xml.close();
+    assertEquals("<a><b>" + MIXED.repeat(3000) + "</b></a>", bytes.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  void testWriteXMLNonBlockingChannel() throws IOException {
+    Pipe pipe = Pipe.open();
+    try {
+      pipe.source().configureBlocking(false);
+      XMLWriter xml = new XMLWriterImpl(new ByteArrayOutputStream());
+      xml.openElement("a");
+      assertThrows(IllegalBlockingModeException.class, () -> xml.writeXMLFrom(pipe.source()));
+    } finally {
+      pipe.sink().close();
+      pipe.source().close();
+    }
+  }
+
+  @Test
+  void testPrintStream() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8.name());
+    XMLWriter xml = new XMLWriterImpl(out);
+    xml.emptyElement("a");
+    xml.flush();
+    xml = new XMLWriterNSImpl(out, true);
+    xml.emptyElement("b");
+    xml.flush();
+    assertEquals("<a/><b/>\n", bytes.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  void testSetEncoding() {
+    XMLWriterImpl xml = new XMLWriterImpl(new ByteArrayOutputStream());
+    xml.setEncoding("UTF-8");
+    assertThrows(IllegalArgumentException.class, () -> xml.setEncoding("ASCII"));
+  }
+
+  private static Path createFragment() throws IOException {
+    Path fragment = Files.createTempFile("fragment", ".xml");
+    Files.write(fragment, ("<b>" + MIXED + "</b>").getBytes(StandardCharsets.UTF_8));
+    return fragment;
+  }
+
+  private static void writeFragment(XMLWriter xml, Path fragment) throws IOException {
+    xml.openElement("a", true);
+    xml.attribute("x", 1);
+    xml.writeXMLFrom(fragment);
+    xml.emptyElement("c");
+    xml.closeElement();
+    xml.flush();
+  }
+
+  private static void assertEncoded(String s) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    UTF8Output out = new UTF8Output(bytes);
+    out.write(s);
+    out.close();
+    assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+  }
+
+  private static void write(XMLWriter xml) throws IOException {
+    xml.xmlDecl();
+    xml.openElement("root", true);
+    xml.attribute("title", "café & \"bar\"");
+    xml.element("text", MIXED + " <tag>");
+    xml.openElement("number");
+    xml.attribute("value", 12345678901L);
+    xml.closeElement();
+    xml.writeComment("€");
+    xml.emptyElement("empty");
+    xml.openElement(SUMMER, true);
+    xml.attribute(SUMMER, "€");
+    xml.element(SUMMER, MIXED);
+    xml.emptyElement(SUMMER);
+    xml.closeElement();
+    xml.closeElement();
+    xml.close();
+  }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>XMLFragmentCache</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class XMLFragmentCacheTest {
+
+  @Test
+  void testHitAndMiss() throws IOException {
+    XMLFragmentCache cache = new XMLFragmentCache(1024);
+    AtomicInteger renders = new AtomicInteger();
+    XMLWritable nav = xml -> {
+      renders.incrementAndGet();
+      xml.openElement("nav");
+      xml.element("a", "été & hiver");
+      xml.closeElement();
+    };
+    StringWriter chars = new StringWriter();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (XMLWriter xml : new XMLWriter[]{new XMLWriterImpl(chars), new XMLWriterNSImpl(bytes)}) {
+      xml.openElement("page", true);
+      cache.write(xml, "nav", 1, nav);
+      cache.write(xml, "nav", 1, nav);
+      xml.closeElement();
+      xml.close();
+    }
+    String expected = "<page><nav><a>été &amp; hiver</a></nav><nav><a>été &amp; hiver</a></nav></page>";
+    assertEquals(expected, chars.toString());
+    assertEquals(expected, bytes.toString(StandardCharsets.UTF_8.name()));
+    assertEquals(1, renders.get());
+    assertEquals(3, cache.hitCount());
+    assertEquals(1, cache.missCount());
+    assertEquals(1, cache.count());
+  }
+
+  @Test
+  void testVersion() throws IOException {
+    XMLFragmentCache cache = new XMLFragmentCache(1024);
+    XMLStringWriter xml = new XMLStringWriter(false);
+    cache.write(xml, "x", 1, out -> out.emptyElement("a"));
+    cache.write(xml, "x", 2, out -> out.emptyElement("b"));
+    cache.write(xml, "x", 2, out -> out.emptyElement("c"));
+    assertEquals("<a/><b/><b/>", xml.toString());
+    assertEquals(1, cache.count());
+    assertEquals(2 * 4 + 4, cache.size());
+  }
+
+  @Test
+  void testLateRender() throws IOException {
+    XMLFragmentCache cache = new XMLFragmentCache(1024);
+    XMLStringWriter xml = new XMLStringWriter(false);
+    // Version 2 is cached while version 1 is still being rendered
+    cache.write(xml, "x", 1, out -> {
+      cache.write(new XMLStringWriter(false), "x", 2, other -> other.emptyElement("b"));
+      out.emptyElement("a");
+    });
+    cache.write(xml, "x", 2, out -> out.emptyElement("c"));
+    assertEquals("<a/><b/>", xml.toString());
+    assertEquals(1, cache.hitCount());
+    assertEquals(12, cache.size());
+  }
+
+  @Test
+  void testEviction() throws IOException {
+    // Each fragment "<x/>" uses 12 bytes
+    XMLFragmentCache cache = new XMLFragmentCache(36);
+    XMLStringWriter xml = new XMLStringWriter(false);
+    cache.write(xml, "a", 0, out -> out.emptyElement("a"));
+    cache.write(xml, "b", 0, out -> out.emptyElement("b"));
+    cache.write(xml, "c", 0, out -> out.emptyElement("c"));
+    cache.write(xml, "a", 0, out -> out.emptyElement("a"));
+    cache.write(xml, "d", 0, out -> out.emptyElement("d"));
+    assertEquals(3, cache.count());
+    assertEquals(1, cache.evictionCount());
+    // "b" was the least recently used
+    cache.write(xml, "b", 0, out -> out.emptyElement("b"));
+    assertEquals(5, cache.missCount());
+    assertEquals(36, cache.size());
+  }
+
+  @Test
+  void testEvictionSampled() throws IOException {
+    // Room for 20 fragments "<x/>" of 12 bytes, more than one eviction sample
+    XMLFragmentCache cache = new XMLFragmentCache(20 * 12);
+    XMLStringWriter xml = new XMLStringWriter(false);
+    for (int i = 0; i < 100; i++) {
+      cache.write(xml, i, 0, out -> out.emptyElement("x"));
+      // Keep the first fragment in use
+      cache.write(xml, 0, 0, out -> out.emptyElement("x"));
+    }
+    assertEquals(20, cache.count());
+    assertEquals(20 * 12, cache.size());
+    assertEquals(80, cache.evictionCount());
+    assertEquals(100, cache.missCount());
+  }
+
+  @Test
+  void testTooLarge() throws IOException {
+    XMLFragmentCache cache = new XMLFragmentCache(8);
+    XMLStringWriter xml = new XMLStringWriter(false);
+    cache.write(xml, "a", 0, out -> out.emptyElement("a"));
+    assertEquals("<a/>", xml.toString());
+    assertEquals(0, cache.count());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testInvalidate() throws IOException {
+    XMLFragmentCache cache = new XMLFragmentCache(1024);
+    XMLStringWriter xml = new XMLStringWriter(false);
+    cache.write(xml, "a", 0, out -> out.emptyElement("a"));
+    cache.write(xml, "b", 0, out -> out.emptyElement("b"));
+    cache.invalidate("a");
+    assertEquals(1, cache.count());
+    assertEquals(12, cache.size());
+    cache.clear();
+    assertEquals(0, cache.count());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testUnclosed() {
+    XMLFragmentCache cache = new XMLFragmentCache(1024);
+    XMLStringWriter xml = new XMLStringWriter(false);
+    assertThrows(UnclosedElementException.class, () -> cache.write(xml, "a", 0, out -> out.openElement("a")));
+  }
+
+  @Test
+  void testInvalidBudget() {
+    assertThrows(IllegalArgumentException.class, () -> new XMLFragmentCache(0));
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>XMLName</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class XMLNameTest {
+
+  @Test
+  void testMarkup() {
+    XMLName name = XMLName.of("dc:title");
+    assertEquals("dc:title", name.toString());
+    assertEquals("<dc:title", new String(name.openTag));
+    assertEquals("</dc:title>", new String(name.closeTag));
+    assertEquals(" dc:title=\"", new String(name.attribute));
+  }
+
+  @Test
+  void testMarkupUTF8() {
+    XMLName name = XMLName.of("été");
+    assertArrayEquals("<été".getBytes(StandardCharsets.UTF_8), name.openTagUTF8);
+    assertArrayEquals("</été>".getBytes(StandardCharsets.UTF_8), name.closeTagUTF8);
+    assertArrayEquals(" été=\"".getBytes(StandardCharsets.UTF_8), name.attributeUTF8);
+  }
+
+  @Test
+  void testEquals() {
+    assertEquals(XMLName.of("x"), XMLName.of("x"));
+    assertEquals(XMLName.of("x").hashCode(), XMLName.of("x").hashCode());
+  }
+
+  @Test
+  void testInvalid() {
+    assertThrows(IllegalArgumentException.class, () -> XMLName.of(""));
+    assertThrows(IllegalArgumentException.class, () -> XMLName.of("x a='1'"));
+    assertThrows(IllegalArgumentException.class, () -> XMLName.of("x>"));
+    assertThrows(NullPointerException.class, () -> XMLName.of(null));
+  }
+
+}
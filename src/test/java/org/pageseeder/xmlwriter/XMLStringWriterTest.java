@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.xmlwriter.XML.NamespaceAware;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>XMLStringWriter</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class XMLStringWriterTest {
+
+  /**
+   * A string using 1, 2, 3 and 4 byte UTF-8 sequences.
+   */
+  private static final String MIXED = "aé€" + new String(Character.toChars(0x1f64a)) + "z";
+
+  @Test
+  void testToString() {
+    XMLStringWriter xml = new XMLStringWriter(NamespaceAware.No);
+    xml.openElement("x");
+    xml.attribute("a", 1);
+    xml.writeText("text & more");
+    xml.closeElement();
+    assertEquals("<x a=\"1\">text &amp; more</x>", xml.toString());
+  }
+
+  @Test
+  void testManyChunks() throws IOException {
+    XMLStringWriter xml = new XMLStringWriter(NamespaceAware.Yes, true, 10);
+    StringWriter expected = new StringWriter();
+    XMLWriter reference = new XMLWriterNSImpl(expected, true);
+    write(xml);
+    write(reference);
+    assertEquals(expected.toString(), xml.toString());
+    StringWriter out = new StringWriter();
+    xml.writeTo(out);
+    assertEquals(expected.toString(), out.toString());
+  }
+
+  @Test
+  void testIndentedToString() {
+    XMLStringWriter xml = new XMLStringWriter(NamespaceAware.No, true);
+    xml.openElement("a", true);
+    xml.emptyElement("b");
+    assertEquals("<a>\n  <b/>\n", xml.toString());
+    xml.emptyElement("b");
+    xml.closeElement();
+    assertEquals("<a>\n  <b/>\n  <b/>\n</a>", xml.toString());
+  }
+
+  @Test
+  void testLargeCapacity() {
+    int[] capacities = { (1 << 30) + 1, Integer.MAX_VALUE };
+    for (int capacity : capacities) {
+      XMLStringWriter xml = new XMLStringWriter(NamespaceAware.No, false, capacity);
+      xml.element("x", "text");
+      assertEquals("<x>text</x>", xml.toString());
+    }
+  }
+
+  @Test
+  void testUTF8() throws IOException {
+    XMLStringWriter xml = new XMLStringWriter(NamespaceAware.No, false, 100);
+    write(xml);
+    byte[] expected = xml.toString().getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(expected, xml.toUTF8Bytes());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    xml.writeTo(out);
+    assertArrayEquals(expected, out.toByteArray());
+  }
+
+  @Test
+  void testCharSequence() {
+    XMLStringWriter xml = new XMLStringWriter(NamespaceAware.No, false, 1);
+    xml.openElement("root");
+    CharSequence view = xml.asCharSequence();
+    assertEquals("<root", view.toString());
+    for (int i = 0; i < 100; i++) {
+      xml.element("item", Integer.toString(i));
+    }
+    xml.closeElement();
+    String s = xml.toString();
+    assertEquals(s.length(), view.length());
+    for (int i = 0; i < s.length(); i++) {
+      assertEquals(s.charAt(i), view.charAt(i));
+    }
+    assertEquals(s.substring(60, 200), view.subSequence(60, 200).toString());
+    assertThrows(IndexOutOfBoundsException.class, () -> view.charAt(s.length()));
+    assertThrows(IndexOutOfBoundsException.class, () -> view.subSequence(10, 5));
+  }
+
+  private static void write(XMLWriter xml) throws IOException {
+    xml.openElement("root", true);
+    for (int i = 0; i < 1000; i++) {
+      xml.openElement("item", false);
+      xml.attribute("id", i);
+      xml.attribute("label", MIXED);
+      xml.writeText(MIXED + " & " + i);
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.flush();
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>XMLText</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class XMLTextTest {
+
+  @Test
+  void testEscaped() {
+    XMLText text = XMLText.of("\"Tom\" & <Jerry>");
+    assertEquals("\"Tom\" & <Jerry>", text.toString());
+    assertEquals("\"Tom\" &amp; &lt;Jerry&gt;", new String(text.text));
+    assertEquals("&quot;Tom&quot; &amp; &lt;Jerry>", new String(text.attValue));
+  }
+
+  @Test
+  void testEscapedUTF8() {
+    XMLText text = XMLText.of("été & hiver");
+    assertArrayEquals("été &amp; hiver".getBytes(StandardCharsets.UTF_8), text.textUTF8);
+    // No quotes: both forms are shared
+    assertSame(text.text, text.attValue);
+    assertSame(text.textUTF8, text.attValueUTF8);
+  }
+
+  @Test
+  void testEquals() {
+    assertEquals(XMLText.of("x"), XMLText.of("x"));
+    assertEquals(XMLText.of("x").hashCode(), XMLText.of("x").hashCode());
+  }
+
+  @Test
+  void testInvalid() {
+    assertThrows(NullPointerException.class, () -> XMLText.of(null));
+  }
+
+  @Test
+  void testSameAsEscapedByWriter() throws IOException {
+    String[] values = {"plain", "a < b && c > d", "'single' \"double\"", "été 🙊", "tab\tline\nend\u0001"};
+    for (String value : values) {
+      StringWriter expected = new StringWriter();
+      XMLWriter xml = new XMLWriterImpl(expected);
+      xml.openElement("x");
+      xml.attribute("a", value);
+      xml.writeText(value);
+      xml.closeElement();
+      StringWriter chars = new StringWriter();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      write(new XMLWriterImpl(chars), XMLText.of(value));
+      write(new XMLWriterNSImpl(bytes), XMLText.of(value));
+      assertEquals(expected.toString(), chars.toString());
+      assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8.name()));
+    }
+  }
+
+  private static void write(XMLWriter xml, XMLText text) throws IOException {
+    xml.openElement("x");
+    xml.escapedAttribute(XMLName.of("a"), text);
+    xml.writeEscapedText(text);
+    xml.closeElement();
+    xml.flush();
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.xmlwriter.XML.NamespaceAware;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>XMLWriterPool</code> and the reset of XML writers.
+ *
+ * @author Christophe Lauret
+ */
+final class XMLWriterPoolTest {
+
+  @Test
+  void testThreadLocalPool() throws IOException {
+    XMLWriterPool pool = XMLWriterPool.newThreadLocalPool(NamespaceAware.No, false);
+    StringWriter first = new StringWriter();
+    XMLWriter xml = pool.acquire(first);
+    write(xml);
+    pool.release(xml);
+    StringWriter second = new StringWriter();
+    assertSame(xml, pool.acquire(second));
+    // Nested acquisition while the writer is in use
+    XMLWriter other = pool.acquire(new StringWriter());
+    assertNotSame(xml, other);
+    write(xml);
+    assertEquals("<x a=\"1\"><y>text</y></x>", first.toString());
+    assertEquals(first.toString(), second.toString());
+  }
+
+  @Test
+  void testBoundedPool() throws IOException {
+    XMLWriterPool pool = XMLWriterPool.newBoundedPool(NamespaceAware.Yes, false, 1);
+    XMLWriter a = pool.acquire(new StringWriter());
+    XMLWriter b = pool.acquire(new StringWriter());
+    assertNotSame(a, b);
+    pool.release(a);
+    pool.release(b);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    XMLWriter xml = pool.acquire(out);
+    assertSame(a, xml);
+    write(xml);
+    assertEquals("<x a=\"1\"><y>text</y></x>", out.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  void testResetDiscardsDocument() throws IOException {
+    XMLWriterPool pool = XMLWriterPool.newBoundedPool(NamespaceAware.Yes, true, 1);
+    XMLWriter xml = pool.acquire(new StringWriter());
+    xml.setIndentChars(null);
+    xml.setPrefixMapping("urn:test", "t");
+    xml.openElement("urn:test", "x", true);
+    xml.openElement("y", false);
+    pool.release(xml);
+    StringWriter w = new StringWriter();
+    assertSame(xml, pool.acquire(w));
+    xml.openElement("x", true);
+    xml.emptyElement("y");
+    xml.closeElement();
+    xml.close();
+    assertEquals("<x>\n  <y/>\n</x>", w.toString());
+    assertThrows(UndeclaredNamespaceException.class, () -> xml.openElement("urn:test", "x", false));
+  }
+
+  @Test
+  void testReleaseOtherWriter() {
+    XMLWriterPool pool = XMLWriterPool.newThreadLocalPool(NamespaceAware.No, false);
+    assertThrows(IllegalArgumentException.class, () -> pool.release(new XMLWriterNSImpl(new StringWriter())));
+    assertThrows(IllegalArgumentException.class, () -> pool.release(new XMLStringWriter(NamespaceAware.No)));
+  }
+
+  private static void write(XMLWriter xml) throws IOException {
+    xml.openElement("x", true);
+    xml.attribute("a", 1);
+    xml.element("y", "text");
+    xml.closeElement();
+    xml.flush();
+  }
+
+}
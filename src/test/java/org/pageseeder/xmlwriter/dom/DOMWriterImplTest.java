@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.dom;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>DOMWriterImpl</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class DOMWriterImplTest {
+
+  @Test
+  void testCharSequence() throws ParserConfigurationException, IOException {
+    DOMWriter xml = new DOMWriterImpl();
+    xml.openElement("x");
+    xml.attribute("a", new StringBuilder("\"1\" < 2"));
+    xml.writeText(new StringBuilder("café & crème"));
+    xml.writeTextFrom(new StringReader(" 🙊"));
+    xml.closeElement();
+    Element x = xml.getDocument().getDocumentElement();
+    assertEquals("x", x.getTagName());
+    assertEquals("\"1\" < 2", x.getAttribute("a"));
+    assertEquals("café & crème 🙊", x.getTextContent());
+  }
+
+  @Test
+  void testWriteXMLUnsupported() throws ParserConfigurationException {
+    DOMWriterImpl xml = new DOMWriterImpl();
+    xml.openElement("x");
+    assertThrows(UnsupportedOperationException.class, () -> xml.writeXML(new StringBuilder("<y/>")));
+  }
+
+}
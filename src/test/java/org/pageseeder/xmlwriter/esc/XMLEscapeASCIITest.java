@@ -20,6 +20,7 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
  * A test class for the XML escape tool.
@@ -48,6 +49,16 @@ final class XMLEscapeASCIITest extends XMLEscapeASCIITestBase {
     assertNull(got);
   }
 
+  /**
+   * Test that the same string is returned when nothing needs escaping.
+   */
+  @Test
+  void testUnchanged_SameInstance() throws IOException {
+    String clean = "Nothing to escape in this text 123";
+    assertSame(clean, escapeAttribute(clean));
+    assertSame(clean, escapeText(clean));
+  }
+
   @Override
   String escapeAttribute(String value) throws IOException {
     return this.esc.toAttributeValue(value);
@@ -182,4 +182,24 @@ public abstract class XMLEscapeASCIITestBase extends XMLEscapeTestBase {
     assertEquals(exp, got);
   }
 
-}
\ No newline at end of file
+  /**
+   * Test that runs of characters around escaped characters are preserved.
+   */
+  @Test
+  public void testToTextValue_Mixed() throws IOException {
+    String monkey = new String(Character.toChars(0x1f64a));
+    String raw = "Tom & Jerry <caf\u00e9>\u0001 \"x\"\u0085 " + monkey + " end";
+    assertEquals("Tom &amp; Jerry &lt;caf&#xe9;&gt; \"x\" &#x1f64a; end", escapeText(raw));
+  }
+
+  /**
+   * Test that runs of characters around escaped characters are preserved.
+   */
+  @Test
+  public void testToAttributeValue_Mixed() throws IOException {
+    String monkey = new String(Character.toChars(0x1f64a));
+    String raw = "Tom & Jerry <caf\u00e9>\u0001 \"x\"\u0085 " + monkey + " end";
+    assertEquals("Tom &amp; Jerry &lt;caf&#xe9;> &quot;x&quot; &#x1f64a; end", escapeAttribute(raw));
+  }
+
+}
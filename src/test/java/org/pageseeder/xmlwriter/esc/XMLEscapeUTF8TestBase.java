@@ -159,6 +159,26 @@ public abstract class XMLEscapeUTF8TestBase extends XMLEscapeTestBase {
     assertTextIsEscaped(monkey);
   }
 
+  /**
+   * Test that runs of characters around escaped characters are preserved.
+   */
+  @Test
+  public void testToTextValue_Mixed() throws IOException {
+    String monkey = new String(Character.toChars(0x1f64a));
+    String raw = "Tom & Jerry <caf\u00e9>\u0001 \"x\"\u0085 " + monkey + " end";
+    assertEquals("Tom &amp; Jerry &lt;caf\u00e9&gt; \"x\" &#x1f64a; end", escapeText(raw));
+  }
+
+  /**
+   * Test that runs of characters around escaped characters are preserved.
+   */
+  @Test
+  public void testToAttributeValue_Mixed() throws IOException {
+    String monkey = new String(Character.toChars(0x1f64a));
+    String raw = "Tom & Jerry <caf\u00e9>\u0001 \"x\"\u0085 " + monkey + " end";
+    assertEquals("Tom &amp; Jerry &lt;caf\u00e9> &quot;x&quot; &#x1f64a; end", escapeAttribute(raw));
+  }
+
   @Override
   abstract String escapeAttribute(String value) throws IOException;
 
@@ -48,6 +48,21 @@ final class XMLEscapeWriterASCIITest extends XMLEscapeASCIITestBase {
     assertEquals("", got);
   }
 
+  /**
+   * Test that single characters are escaped consistently with the text escape.
+   */
+  @Test
+  void testWriteText_Char() throws IOException {
+    String raw = "a<&>\u0001\t\u00a0\u00e9\u20ac";
+    StringWriter got = new StringWriter();
+    XMLEscapeWriterASCII esc = new XMLEscapeWriterASCII(got);
+    for (char c : raw.toCharArray()) {
+      esc.writeText(c);
+    }
+    assertEquals(escapeText(raw), got.toString());
+    assertEquals("a&lt;&amp;&gt;\t&#xa0;&#xe9;&#x20ac;", got.toString());
+  }
+
   @Override
   public String escapeAttribute(String value) throws IOException {
     StringWriter got = new StringWriter();
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A test class for the <code>AsyncOutputStream</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class AsyncOutputStreamTest {
+
+  @Test
+  void testDefault() throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    write(expected);
+    ByteArrayOutputStream got = new ByteArrayOutputStream();
+    write(new AsyncOutputStream(got));
+    assertArrayEquals(expected.toByteArray(), got.toByteArray());
+  }
+
+  @Test
+  void testSmallBuffers() throws IOException {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      write(expected);
+      ByteArrayOutputStream got = new ByteArrayOutputStream();
+      write(new AsyncOutputStream(got, 100, executor));
+      assertArrayEquals(expected.toByteArray(), got.toByteArray());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testFlushWaitsForPendingBytes() throws IOException {
+    ByteArrayOutputStream got = new ByteArrayOutputStream();
+    AsyncOutputStream out = new AsyncOutputStream(got, 4, Runnable::run);
+    out.write(new byte[]{'a', 'b', 'c', 'd', 'e'}, 0, 5);
+    out.flush();
+    assertEquals("abcde", got.toString("UTF-8"));
+  }
+
+  @Test
+  void testErrorReported() throws IOException {
+    FailingStream failing = new FailingStream();
+    AsyncOutputStream out = new AsyncOutputStream(failing, 4, Runnable::run);
+    out.write(new byte[]{'a', 'b', 'c', 'd', 'e'}, 0, 5);
+    assertThrows(IOException.class, out::flush);
+    assertThrows(IOException.class, () -> out.write('x'));
+    assertThrows(IOException.class, out::close);
+    assertTrue(failing.closed);
+  }
+
+  @Test
+  void testErrorReportedByBufferedWrite() throws IOException {
+    FailingStream failing = new FailingStream();
+    AsyncOutputStream out = new AsyncOutputStream(failing, 4, Runnable::run);
+    out.write(new byte[]{'a', 'b', 'c', 'd', 'e'}, 0, 5);
+    // The failed write has completed and the next byte fits in the buffer
+    IOException ex = assertThrows(IOException.class, () -> out.write('f'));
+    assertEquals("Disk full", ex.getMessage());
+    assertThrows(IOException.class, out::close);
+    assertTrue(failing.closed);
+  }
+
+  @Test
+  void testRejectedExecution() throws IOException {
+    ByteArrayOutputStream got = new ByteArrayOutputStream();
+    AsyncOutputStream out = new AsyncOutputStream(got, 4, task -> {
+      throw new RejectedExecutionException("Shut down");
+    });
+    out.write(new byte[]{'a', 'b', 'c', 'd'}, 0, 4);
+    IOException ex = assertThrows(IOException.class, () -> out.write('e'));
+    assertTrue(ex.getCause() instanceof RejectedExecutionException);
+    assertThrows(IOException.class, () -> out.write('f'));
+  }
+
+  @Test
+  void testCloseInterrupted() throws IOException, InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingStream blocking = new BlockingStream(release);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      AsyncOutputStream out = new AsyncOutputStream(blocking, 4, executor);
+      out.write(new byte[]{'a', 'b', 'c'}, 0, 3);
+      Thread.currentThread().interrupt();
+      assertThrows(InterruptedIOException.class, out::close);
+      assertTrue(Thread.interrupted());
+      assertFalse(blocking.closed);
+      release.countDown();
+      out.close();
+      assertTrue(blocking.closed);
+      assertEquals("abc", blocking.bytes.toString("UTF-8"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void write(OutputStream out) throws IOException {
+    XMLWriter xml = new XMLWriterImpl(out, true);
+    xml.openElement("items", true);
+    for (int i = 0; i < 20000; i++) {
+      xml.openElement("item");
+      xml.attribute("id", i);
+      xml.writeText("café & €");
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+  /**
+   * A stream failing on every write.
+   */
+  private static final class FailingStream extends OutputStream {
+
+    private boolean closed = false;
+
+    @Override
+    public void write(int b) throws IOException {
+      throw new IOException("Disk full");
+    }
+
+    @Override
+    public void close() {
+      this.closed = true;
+    }
+  }
+
+  /**
+   * A stream whose writes block until released.
+   */
+  private static final class BlockingStream extends OutputStream {
+
+    private final CountDownLatch release;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private volatile boolean closed = false;
+
+    BlockingStream(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      try {
+        this.release.await();
+      } catch (InterruptedException ex) {
+        throw new InterruptedIOException();
+      }
+      this.bytes.write(b);
+    }
+
+    @Override
+    public void close() {
+      this.closed = true;
+    }
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterNSImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>ChannelOutputStream</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class ChannelOutputStreamTest {
+
+  @Test
+  void testFileChannel() throws IOException {
+    Path file = Files.createTempFile("channel", ".xml");
+    try {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      write(expected);
+      write(new ChannelOutputStream(FileChannel.open(file, StandardOpenOption.WRITE)));
+      assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void testNonGatheringChannel() throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    write(expected);
+    ByteArrayOutputStream got = new ByteArrayOutputStream();
+    write(new ChannelOutputStream(Channels.newChannel(got), 2));
+    assertArrayEquals(expected.toByteArray(), got.toByteArray());
+  }
+
+  @Test
+  void testPartialGatheringWrites() throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    write(expected);
+    SlowChannel channel = new SlowChannel();
+    write(new ChannelOutputStream(channel));
+    assertArrayEquals(expected.toByteArray(), channel.bytes.toByteArray());
+  }
+
+  @Test
+  void testFlush() throws IOException {
+    ByteArrayOutputStream got = new ByteArrayOutputStream();
+    ChannelOutputStream out = new ChannelOutputStream(Channels.newChannel(got));
+    out.write('a');
+    assertEquals(0, got.size());
+    out.flush();
+    assertEquals(1, got.size());
+    out.close();
+    assertThrows(IOException.class, () -> out.write('b'));
+  }
+
+  @Test
+  void testFailingChannel() throws IOException {
+    FailingChannel channel = new FailingChannel();
+    ChannelOutputStream out = new ChannelOutputStream(channel);
+    out.write(new byte[]{'a', 'b', 'c'}, 0, 3);
+    assertThrows(IOException.class, out::flush);
+    channel.failing = false;
+    out.write('d');
+    out.close();
+    assertFalse(channel.isOpen());
+    assertEquals("d", channel.bytes.toString("UTF-8"));
+  }
+
+  @Test
+  void testFailingClose() throws IOException {
+    FailingChannel channel = new FailingChannel();
+    channel.failingClose = true;
+    ChannelOutputStream out = new ChannelOutputStream(channel);
+    out.write(new byte[]{'a', 'b', 'c'}, 0, 3);
+    IOException ex = assertThrows(IOException.class, out::close);
+    assertEquals("Disk full", ex.getMessage());
+    assertEquals(1, ex.getSuppressed().length);
+    assertEquals("Unable to close", ex.getSuppressed()[0].getMessage());
+    assertFalse(channel.isOpen());
+  }
+
+  @Test
+  void testNonBlockingChannel() throws IOException {
+    Pipe pipe = Pipe.open();
+    try {
+      pipe.sink().configureBlocking(false);
+      assertThrows(IllegalBlockingModeException.class, () -> new ChannelOutputStream(pipe.sink()));
+    } finally {
+      pipe.sink().close();
+      pipe.source().close();
+    }
+  }
+
+  private static void write(OutputStream out) throws IOException {
+    XMLWriter xml = new XMLWriterNSImpl(out, true);
+    xml.openElement("items", true);
+    for (int i = 0; i < 20000; i++) {
+      xml.openElement("item");
+      xml.attribute("id", i);
+      xml.writeText("café & €");
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+  /**
+   * A gathering channel writing at most 1000 bytes at a time.
+   */
+  private static final class SlowChannel implements GatheringByteChannel {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private boolean open = true;
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      long written = 0;
+      for (int i = offset; i < offset + length && written < 1000; i++) {
+        written += write(srcs[i], (int) (1000 - written));
+      }
+      return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      return write(src, 1000);
+    }
+
+    private int write(ByteBuffer src, int max) {
+      int n = Math.min(max, src.remaining());
+      for (int i = 0; i < n; i++) {
+        this.bytes.write(src.get());
+      }
+      return n;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return this.open;
+    }
+
+    @Override
+    public void close() {
+      this.open = false;
+    }
+  }
+
+  /**
+   * A channel failing after writing one byte until told otherwise, and optionally when closed.
+   */
+  private static final class FailingChannel implements WritableByteChannel {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private boolean failing = true;
+
+    private boolean failingClose = false;
+
+    private boolean open = true;
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      if (this.failing) {
+        src.get();
+        throw new IOException("Disk full");
+      }
+      int n = src.remaining();
+      for (int i = 0; i < n; i++) {
+        this.bytes.write(src.get());
+      }
+      return n;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return this.open;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.open = false;
+      if (this.failingClose) throw new IOException("Unable to close");
+    }
+  }
+
+}
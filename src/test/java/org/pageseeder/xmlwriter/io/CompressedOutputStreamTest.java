@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+import org.pageseeder.xmlwriter.io.CompressedOutputStream.Format;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A test class for the <code>CompressedOutputStream</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class CompressedOutputStreamTest {
+
+  @Test
+  void testGzip() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    write(new CompressedOutputStream(compressed));
+    assertArrayEquals(expected(), readAll(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+  }
+
+  @Test
+  void testZlib() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    write(new CompressedOutputStream(compressed, Format.ZLIB, Deflater.BEST_SPEED, false));
+    assertArrayEquals(expected(), readAll(new InflaterInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+  }
+
+  @Test
+  void testDeflate() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    write(new CompressedOutputStream(compressed, Format.DEFLATE, Deflater.BEST_COMPRESSION, false));
+    InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed.toByteArray()), new Inflater(true));
+    assertArrayEquals(expected(), readAll(in));
+  }
+
+  @Test
+  void testSmallWrites() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    CompressedOutputStream out = new CompressedOutputStream(compressed);
+    byte[] expected = expected();
+    for (byte b : expected) {
+      out.write(b);
+    }
+    out.close();
+    assertArrayEquals(expected, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+  }
+
+  @Test
+  void testSyncFlush() throws IOException, DataFormatException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    CompressedOutputStream out = new CompressedOutputStream(compressed, Format.ZLIB, Deflater.DEFAULT_COMPRESSION, true);
+    XMLWriter xml = new XMLWriterImpl(out);
+    xml.openElement("root", true);
+    xml.element("a", "Hello");
+    xml.flush();
+    // Everything written so far can be inflated before the end of the stream
+    Inflater inflater = new Inflater();
+    inflater.setInput(compressed.toByteArray());
+    byte[] buf = new byte[100];
+    int n = inflater.inflate(buf);
+    inflater.end();
+    assertEquals("<root><a>Hello</a>", new String(buf, 0, n, StandardCharsets.UTF_8));
+    xml.closeElement();
+    xml.close();
+  }
+
+  @Test
+  void testInvalidLevel() {
+    assertThrows(IllegalArgumentException.class, () -> new CompressedOutputStream(new ByteArrayOutputStream(), Format.GZIP, 10, false));
+  }
+
+  @Test
+  void testFinish() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    CompressedOutputStream out = new CompressedOutputStream(compressed);
+    out.write(new byte[]{'a'}, 0, 1);
+    out.finish();
+    assertThrows(IOException.class, () -> out.write('b'));
+    assertTrue(compressed.size() > 10);
+  }
+
+  private static byte[] expected() throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    write(expected);
+    return expected.toByteArray();
+  }
+
+  private static void write(OutputStream out) throws IOException {
+    XMLWriter xml = new XMLWriterImpl(out, true);
+    xml.openElement("items", true);
+    for (int i = 0; i < 5000; i++) {
+      xml.openElement("item");
+      xml.attribute("id", i);
+      xml.writeText("café & €");
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[4096];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      out.write(buf, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>MappedFileOutputStream</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class MappedFileOutputStreamTest {
+
+  @Test
+  void testTruncatedOnClose() throws IOException {
+    Path file = Files.createTempFile("mapped", ".xml");
+    try {
+      MappedFileOutputStream out = new MappedFileOutputStream(file, 1024);
+      out.write(new byte[]{'a', 'b', 'c'}, 0, 3);
+      out.write('d');
+      assertEquals(4, out.size());
+      out.close();
+      assertArrayEquals(new byte[]{'a', 'b', 'c', 'd'}, Files.readAllBytes(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void testRemapAcrossWindows() throws IOException {
+    Path file = Files.createTempFile("mapped", ".xml");
+    try {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      write(expected);
+      write(new MappedFileOutputStream(file, 1000));
+      assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void testWriteAfterClose() throws IOException {
+    Path file = Files.createTempFile("mapped", ".xml");
+    try {
+      MappedFileOutputStream out = new MappedFileOutputStream(file, 1024);
+      out.close();
+      assertThrows(IOException.class, () -> out.write('x'));
+      assertEquals(0, Files.size(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void write(OutputStream out) throws IOException {
+    XMLWriter xml = new XMLWriterImpl(out, true);
+    xml.openElement("items", true);
+    for (int i = 0; i < 2000; i++) {
+      xml.openElement("item");
+      xml.attribute("id", i);
+      xml.writeText("café & €");
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+}
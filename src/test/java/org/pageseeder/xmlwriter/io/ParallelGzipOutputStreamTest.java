@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.xmlwriter.io;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A test class for the <code>ParallelGzipOutputStream</code>.
+ *
+ * @author Christophe Lauret
+ */
+final class ParallelGzipOutputStreamTest {
+
+  @Test
+  void testDefault() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    write(new ParallelGzipOutputStream(compressed), false);
+    assertArrayEquals(expected(), gunzip(compressed.toByteArray()));
+  }
+
+  @Test
+  void testSmallBlocks() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      write(new ParallelGzipOutputStream(compressed, Deflater.BEST_SPEED, 1 << 15, executor, 3), false);
+      assertArrayEquals(expected(), gunzip(compressed.toByteArray()));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testFlush() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    write(new ParallelGzipOutputStream(compressed, Deflater.DEFAULT_COMPRESSION, 1 << 15, Runnable::run, 1), true);
+    assertArrayEquals(expected(), gunzip(compressed.toByteArray()));
+  }
+
+  @Test
+  void testEmpty() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    new ParallelGzipOutputStream(compressed).close();
+    assertArrayEquals(new byte[0], gunzip(compressed.toByteArray()));
+  }
+
+  @Test
+  void testInvalidArguments() {
+    OutputStream out = new ByteArrayOutputStream();
+    assertThrows(IllegalArgumentException.class, () -> new ParallelGzipOutputStream(out, 10, 1 << 17, Runnable::run, 1));
+    assertThrows(IllegalArgumentException.class, () -> new ParallelGzipOutputStream(out, 1, 1024, Runnable::run, 1));
+    assertThrows(IllegalArgumentException.class, () -> new ParallelGzipOutputStream(out, 1, 1 << 17, Runnable::run, 0));
+  }
+
+  private static byte[] expected() throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    write(expected, false);
+    return expected.toByteArray();
+  }
+
+  private static void write(OutputStream out, boolean flush) throws IOException {
+    XMLWriter xml = new XMLWriterImpl(out, true);
+    xml.openElement("items", true);
+    for (int i = 0; i < 20000; i++) {
+      xml.openElement("item");
+      xml.attribute("id", i);
+      xml.writeText("café & €");
+      xml.closeElement();
+      if (flush && i % 5000 == 0) {
+        xml.flush();
+      }
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+  private static byte[] gunzip(byte[] compressed) throws IOException {
+    InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[4096];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      out.write(buf, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+}
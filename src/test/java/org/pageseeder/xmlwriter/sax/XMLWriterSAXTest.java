@@ -271,6 +271,39 @@ final class XMLWriterSAXTest {
     assertThrows(UnclosedElementException.class, () -> this.xml.close());
   }
 
+  /**
+   * Checks that a reset writer can be reused for a new document.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  void testReset() throws IOException {
+    this.xml.openElement("x", true);
+    this.xml.openElement("y");
+    this.xml.writeText("text");
+    this.handler = new ContentHandlerChecker();
+    this.xml.reset(this.handler);
+    this.xml.openElement("test");
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquivalent("<test/>");
+  }
+
+  /**
+   * Checks that text and attributes can be written from a sequence of characters.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  void testCharSequence() throws IOException {
+    this.xml.openElement("x");
+    this.xml.attribute("a", new StringBuilder("value"));
+    this.xml.writeText(new StringBuilder("text"));
+    this.xml.closeElement();
+    this.xml.close();
+    assertEquivalent("<x a=\"value\">text</x>");
+  }
+
   /**
    * Asserts that the two XML are equivalent.
    *